@@ -0,0 +1,68 @@
+package model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+// Partial state of one aggregate. Each thread fills its own accumulator and the
+// partials are merged at the end, so no state is shared while scanning.
+public class Accumulator {
+	private final Aggregate function;
+	private long count;
+	private double sum;
+	private double min = Double.POSITIVE_INFINITY;
+	private double max = Double.NEGATIVE_INFINITY;
+	private final Set<Object> distinct;
+
+	public Accumulator(Aggregate function) {
+		this.function = function;
+		this.distinct = function == Aggregate.DISTINCT_COUNT ? new HashSet<>() : null;
+	}
+
+	// Nulls are skipped, like SQL aggregates
+	public void add(Object value) {
+		if (value == null) {
+			return;
+		}
+		switch (function) {
+			case COUNT -> count++;
+			case DISTINCT_COUNT -> distinct.add(value);
+			default -> {
+				if (!(value instanceof Number number)) {
+					throw new IllegalArgumentException("Cannot " + function + " non-numeric value: " + value);
+				}
+				add(number.doubleValue());
+			}
+		}
+	}
+
+	// Primitive entry point for column-aware fast paths
+	public void add(double value) {
+		count++;
+		sum += value;
+		min = Math.min(min, value);
+		max = Math.max(max, value);
+	}
+
+	public Accumulator merge(Accumulator other) {
+		count += other.count;
+		sum += other.sum;
+		min = Math.min(min, other.min);
+		max = Math.max(max, other.max);
+		if (distinct != null) {
+			distinct.addAll(other.distinct);
+		}
+		return this;
+	}
+
+	// COUNT and DISTINCT_COUNT give a Long, the rest a Double (null when no values were seen)
+	public Number result() {
+		return switch (function) {
+			case COUNT -> count;
+			case DISTINCT_COUNT -> (long) distinct.size();
+			case SUM -> sum;
+			case MIN -> count == 0 ? null : min;
+			case MAX -> count == 0 ? null : max;
+			case AVG -> count == 0 ? null : sum / count;
+		};
+	}
+}
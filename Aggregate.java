@@ -0,0 +1,16 @@
+package model;
+
+// The aggregate functions a Table can compute over one column
+public enum Aggregate {
+	COUNT,
+	SUM,
+	MIN,
+	MAX,
+	AVG,
+	DISTINCT_COUNT;
+
+	// Label used for the aggregate column of a group-by result, e.g. sum(Rating)
+	public String label(String columnName) {
+		return name().toLowerCase() + "(" + columnName + ")";
+	}
+}
@@ -0,0 +1,245 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Non-blocking facade over a file table. Requests are queued and applied in order by one
+// drain task at a time on the I/O executor, since the file tables are not thread-safe.
+// Each drain takes the waiting requests and coalesces runs of the same kind:
+// gets share one getAll, so concurrent gets of one key share a single read, and puts
+// and removes go through one putAll or removeAll, which is one file rewrite for
+// CSVTable and JSONTable. Use one AsyncTable per underlying table.
+//
+// The executor can be any Executor, e.g. Executors.newVirtualThreadPerTaskExecutor() on
+// a JDK that has virtual threads; by default a bounded daemon pool is shared.
+public class AsyncTable implements AutoCloseable {
+
+	// Requests coalesced by one drain at most, so a busy table still answers promptly
+	private static final int MAX_BATCH = 1024;
+
+	private static final ExecutorService SHARED_POOL = Executors.newFixedThreadPool(
+		Runtime.getRuntime().availableProcessors(), new ThreadFactory());
+
+	private enum Kind { PUT, GET, REMOVE, SCAN, FLUSH }
+
+	private record Request(Kind kind, String key, List<Object> fields, Consumer<? super Row> action,
+		CompletableFuture<Object> result) {}
+
+	private final FileTable table;
+	private final Executor executor;
+	private final Queue<Request> pending = new ConcurrentLinkedQueue<>();
+	private final AtomicBoolean draining = new AtomicBoolean();
+
+	public AsyncTable(FileTable table) {
+		this(table, SHARED_POOL);
+	}
+
+	public AsyncTable(FileTable table, Executor executor) {
+		this.table = table;
+		this.executor = executor;
+	}
+
+	public FileTable table() {
+		return table;
+	}
+
+	// Completes with the previous fields of the key, or null
+	public CompletableFuture<List<Object>> putAsync(String key, List<Object> fields) {
+		return submit(Kind.PUT, key, fields, null);
+	}
+
+	public CompletableFuture<List<Object>> getAsync(String key) {
+		return submit(Kind.GET, key, null, null);
+	}
+
+	// Completes with the removed fields, or null
+	public CompletableFuture<List<Object>> removeAsync(String key) {
+		return submit(Kind.REMOVE, key, null, null);
+	}
+
+	// Streams every row to the action on the I/O thread; completes with the number of rows
+	public CompletableFuture<Long> scanAsync(Consumer<? super Row> action) {
+		return submit(Kind.SCAN, null, null, action);
+	}
+
+	// Flushes the table once every request queued before it has been applied
+	public CompletableFuture<Void> flushAsync() {
+		return submit(Kind.FLUSH, null, null, null);
+	}
+
+	// Waits for queued requests, then closes the table
+	@Override
+	public void close() {
+		flushAsync().join();
+		table.close();
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> submit(Kind kind, String key, List<Object> fields, Consumer<? super Row> action) {
+		if ((kind == Kind.PUT || kind == Kind.GET || kind == Kind.REMOVE) && key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+		if (kind == Kind.PUT && fields == null) {
+			throw new IllegalArgumentException("Fields cannot be null.");
+		}
+		CompletableFuture<Object> result = new CompletableFuture<>();
+		enqueue(new Request(kind, key, fields, action, result));
+		return (CompletableFuture<T>) result;
+	}
+
+	private void enqueue(Request request) {
+		pending.add(request);
+		if (draining.compareAndSet(false, true)) {
+			executor.execute(this::drain);
+		}
+	}
+
+	private void drain() {
+		try {
+			drainPending();
+		} finally {
+			// Also reached when an Error escapes, so the table keeps draining afterwards.
+			// A request may have arrived after the last poll and before the flag was cleared.
+			draining.set(false);
+			if (!pending.isEmpty() && draining.compareAndSet(false, true)) {
+				executor.execute(this::drain);
+			}
+		}
+	}
+
+	private void drainPending() {
+		while (true) {
+			List<Request> batch = new ArrayList<>();
+			Request request;
+			while (batch.size() < MAX_BATCH && (request = pending.poll()) != null) {
+				batch.add(request);
+			}
+			if (batch.isEmpty()) {
+				return;
+			}
+
+			// Apply maximal runs of the same kind, keeping arrival order between runs
+			int start = 0;
+			while (start < batch.size()) {
+				int end = start + 1;
+				Kind kind = batch.get(start).kind();
+				while (kind != Kind.SCAN && kind != Kind.FLUSH && end < batch.size() && batch.get(end).kind() == kind) {
+					end++;
+				}
+				try {
+					apply(kind, batch.subList(start, end));
+				} catch (Error e) {
+					for (Request failed : batch.subList(start, batch.size()))
+						failed.result().completeExceptionally(e);
+					throw e;
+				}
+				start = end;
+			}
+		}
+	}
+
+	private void apply(Kind kind, List<Request> run) {
+		if (kind == Kind.PUT) {
+			run = valid(run);
+			if (run.isEmpty()) {
+				return;
+			}
+		}
+		try {
+			switch (kind) {
+				case GET -> {
+					Map<String, List<Object>> found = table.getAll(keys(run));
+					for (Request request : run)
+						request.result().complete(found.get(request.key()));
+				}
+				case PUT -> {
+					// The write reports the fields it replaced, so a CSVTable is not rewritten by a
+					// lookup first; each put sees the one before it in the run
+					List<Row> rows = new ArrayList<>(run.size());
+					for (Request request : run)
+						rows.add(new Row(request.key(), request.fields()));
+					Map<String, List<Object>> current = new HashMap<>(table.getAndPutAll(rows));
+					for (Request request : run)
+						request.result().complete(current.put(request.key(), request.fields()));
+				}
+				case REMOVE -> {
+					Map<String, List<Object>> removed = table.removeAll(keys(run));
+					for (Request request : run)
+						request.result().complete(removed.remove(request.key())); // repeats see null
+				}
+				case SCAN -> {
+					Request request = run.get(0);
+					long[] count = {0};
+					try (Stream<Row> rows = table.stream()) {
+						rows.forEach(row -> {
+							request.action().accept(row);
+							count[0]++;
+						});
+					}
+					request.result().complete(count[0]);
+				}
+				case FLUSH -> {
+					table.flush();
+					run.get(0).result().complete(null);
+				}
+			}
+		} catch (RuntimeException e) {
+			// Reads are safe to repeat one at a time so only a bad key fails; a failed
+			// write may have been partly applied, so the whole run fails
+			if (kind == Kind.GET && run.size() > 1) {
+				for (Request request : run)
+					apply(kind, List.of(request));
+			} else {
+				for (Request request : run)
+					request.result().completeExceptionally(e);
+			}
+		}
+	}
+
+	// Fails puts of the wrong degree up front so they cannot sink the rest of the batch
+	private List<Request> valid(List<Request> run) {
+		int degree = table.degree();
+		List<Request> valid = new ArrayList<>(run.size());
+		for (Request request : run) {
+			if (request.fields().size() + 1 != degree) {
+				request.result().completeExceptionally(
+					new IllegalArgumentException("Amount of fields do not match the degree."));
+			} else {
+				valid.add(request);
+			}
+		}
+		return valid;
+	}
+
+	private static Set<String> keys(List<Request> run) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (Request request : run)
+			keys.add(request.key());
+		return keys;
+	}
+
+	private static class ThreadFactory implements java.util.concurrent.ThreadFactory {
+		private final AtomicInteger count = new AtomicInteger();
+
+		@Override
+		public Thread newThread(Runnable task) {
+			Thread thread = new Thread(task, "table-io-" + count.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package tables;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
@@ -8,25 +10,50 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.ObjectInputStream;
 import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.HexFormat;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
 
+import model.BlockCodec;
+import model.DictionaryFile;
 import model.FileTable;
+import model.Interner;
+import model.MerkleTree;
 import model.Row;
+import model.Schema;
 import model.Table;
 
 public class BinaryTable implements FileTable {
 	private static final Path base = Paths.get("db", "tables");
 	private final Path rootDir;
+	private final LongAdder bytesRead = new LongAdder(); // reads may run in parallel under LockedTable
+	private long bytesWritten;
+	private Schema schema; // metadata/columns, read once
+	private DictionaryFile dictionary; // metadata/dictionary, null unless strings are dictionary encoded
+	private boolean compressed; // metadata/compression exists, row files are DEFLATE blocks
+	
+	// Preset dictionary of the compressed row files: the type tags every row file repeats
+	private static final byte[] ROW_DICTIONARY = rowDictionary();
 
 	public BinaryTable(String name, List<String> columns) {
 		try {
@@ -69,12 +96,62 @@ public class BinaryTable implements FileTable {
 			} catch (IOException e) {
 			    throw new IllegalStateException(e);
 			}
+		openDictionary();
+		compressed = Files.exists(rootDir.resolve("metadata").resolve("compression"));
 	}
 
 	public BinaryTable(String name) {
 		rootDir = base.resolve(name);
 		if (Files.notExists(rootDir))
 			throw new IllegalArgumentException("Missing table: " + name);
+		openDictionary();
+		compressed = Files.exists(rootDir.resolve("metadata").resolve("compression"));
+	}
+	
+	// Stores each row file as a compressed block from now on, rewriting the current ones;
+	// the table stays compressed when reopened. Row files are small, so the blocks share a
+	// preset dictionary of the type tags.
+	public BinaryTable blockCompression() {
+		if (!compressed) {
+			Map<Path, Row> rows = new LinkedHashMap<>();
+			try (Stream<Path> files = Files.walk(rootDir.resolve("data"))) {
+				files.filter(path -> Files.isRegularFile(path))
+					.forEach(path -> rows.put(path, readRowFromFile(path)));
+				Files.createFile(rootDir.resolve("metadata").resolve("compression"));
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			compressed = true;
+			rows.forEach((path, row) -> writeRowToFile(path, row.key(), row.fields()));
+		}
+		return this;
+	}
+	
+	private static byte[] rowDictionary() {
+		try {
+			var bytes = new ByteArrayOutputStream();
+			var dos = new DataOutputStream(bytes);
+			for (String type : List.of("null", "Boolean", "Double", "Code", "Integer", "String"))
+				dos.writeUTF(type);
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Stores string fields as codes into per-column dictionaries from now on, which keeps
+	// repeated values once in metadata/dictionary; the table stays encoded when reopened
+	public BinaryTable dictionaryEncoding() {
+		if (dictionary == null) {
+			dictionary = new DictionaryFile(rootDir.resolve("metadata").resolve("dictionary"));
+		}
+		return this;
+	}
+
+	private void openDictionary() {
+		if (Files.exists(rootDir.resolve("metadata").resolve("dictionary"))) {
+			dictionaryEncoding();
+		}
 	}
 
 	@Override
@@ -103,6 +180,11 @@ public class BinaryTable implements FileTable {
 	            dosFingerprint.writeInt(0);
 	            dosFingerprint.close();
 
+			// an empty tree, if one is kept
+			if (maintainsMerkleTree()) {
+				writeMerkle(new MerkleTree(MerkleTree.DEFAULT_DEPTH));
+			}
+
 			} catch (IOException e) {
 				throw new IllegalStateException(e);
 		}
@@ -141,7 +223,14 @@ public class BinaryTable implements FileTable {
 	    List<Object> fields = new ArrayList<>();
 	    
 	    try {
-	    	DataInputStream dis = new DataInputStream(Files.newInputStream(filePath));
+	    	DataInputStream dis;
+	    	if (compressed) {
+	    		byte[] block = Files.readAllBytes(filePath);
+	    		dis = new DataInputStream(new ByteArrayInputStream(
+	    			BlockCodec.decompress(block, 0, block.length, 0, ROW_DICTIONARY)));
+	    	} else {
+	    		dis = new DataInputStream(Files.newInputStream(filePath));
+	    	}
 	    	
 	    	String key = dis.readUTF();
 	    	int numFields = dis.readInt();
@@ -149,8 +238,14 @@ public class BinaryTable implements FileTable {
 	        	String type = dis.readUTF();
 	            switch (type) {
 	                case "String":
-	                    fields.add(dis.readUTF());
+	                    fields.add(Interner.shared().intern(dis.readUTF()));
 	                    break;
+	                case "Code":
+	                	if (dictionary == null) {
+	                		throw new IllegalStateException("Missing dictionary for coded field");
+	                	}
+	                	fields.add(dictionary.decode(i + 1, dis.readInt()));
+	                	break;
 	                case "Integer":
 	                    fields.add(dis.readInt());
 	                    break;
@@ -168,6 +263,7 @@ public class BinaryTable implements FileTable {
 	            }	       
 	        }
 	    	dis.close();
+	    	bytesRead.add(Files.size(filePath));
 	        return new Row(key, fields);
 	    } catch (IOException e) {
 	        throw new IllegalStateException(e);
@@ -177,12 +273,19 @@ public class BinaryTable implements FileTable {
 	
 	// Helper method to write a row to a file
 	private void writeRowToFile(Path filePath, String key, List<Object> fields) {
+		int[] codes = encodeStrings(fields);
 		try {
-		DataOutputStream dos = new DataOutputStream(Files.newOutputStream(filePath));	
+		// Compressed rows are encoded in memory and written as one block
+		var buffer = compressed ? new ByteArrayOutputStream() : null;
+		DataOutputStream dos = new DataOutputStream(compressed ? buffer : Files.newOutputStream(filePath));	
 	    	dos.writeUTF(key);
 	        dos.writeInt(fields.size());  // Write the number of fields
-	        for (Object field : fields) {
-	            if (field instanceof String) {
+	        for (int i = 0; i < fields.size(); i++) {
+	        	Object field = fields.get(i);
+	            if (codes != null && codes[i] != -1) {
+	                dos.writeUTF("Code");
+	                dos.writeInt(codes[i]);
+	            } else if (field instanceof String) {
 	                dos.writeUTF("String");
 	                dos.writeUTF((String) field);
 	            } else if (field instanceof Integer) {
@@ -199,10 +302,30 @@ public class BinaryTable implements FileTable {
 	            }
 	        }
 	        dos.close();
+	        if (compressed) {
+	        	byte[] block = BlockCodec.compress(buffer.toByteArray(), 0, buffer.size(), ROW_DICTIONARY);
+	        	Files.write(filePath, block);
+	        	bytesWritten += block.length;
+	        } else {
+	        	bytesWritten += dos.size();
+	        }
 	    } catch (IOException e) {
 	        throw new IllegalStateException(e);
 	   }
 	}
+	
+	// Dictionary codes of the string fields, -1 for fields stored as they are, or null when
+	// dictionary encoding is off. New values reach the dictionary file before the row does.
+	private int[] encodeStrings(List<Object> fields) {
+		if (dictionary == null) {
+			return null;
+		}
+		int[] codes = new int[fields.size()];
+		for (int i = 0; i < codes.length; i++)
+			codes[i] = fields.get(i) instanceof String string ? dictionary.encode(i + 1, string) : -1;
+		dictionary.flush();
+		return codes;
+	}
 
 
 	@Override
@@ -254,6 +377,7 @@ public class BinaryTable implements FileTable {
 			}
 			
 			writeRowToFile(rowPath, key, fields);
+			updateMerkle(key, oldFields, fields);
 			
 			// Update Fingerprint
 			int newFingerprint = oldFingerprint - oldRow.hashCode() + fields.hashCode();///////
@@ -269,6 +393,7 @@ public class BinaryTable implements FileTable {
 		} else {
 
 	        writeRowToFile(rowPath, key, fields);
+	        updateMerkle(key, null, fields);
 	        
 	        // Updates size
 	        int newSize = currentSize + 1;
@@ -351,6 +476,7 @@ public class BinaryTable implements FileTable {
 			} catch (IOException e) {
 				throw new IllegalStateException(e);
 			}
+			updateMerkle(key, oldFields, null);
 			
 			int newFingerprint = oldFingerprint - oldRow.hashCode();
 			try (DataOutputStream dosFingerprint = new DataOutputStream(Files.newOutputStream(fpPath))) {
@@ -385,9 +511,265 @@ public class BinaryTable implements FileTable {
 		    return oldFields;
 		}
 
+	// Writes the batch grouped by digest directory, so each directory is created once,
+	// and updates the size and fingerprint metadata once at the end
+	@Override
+	public void putAll(Iterable<Row> rows) {
+		int degree = degree();
+		Path dataDir = rootDir.resolve("data");
+		
+		// prefix -> digest -> row; a key repeated in the batch keeps its last fields
+		Map<String, Map<String, Row>> byPrefix = new TreeMap<>();
+		for (Row row : rows) {
+			if (row.key() == null || row.key().isEmpty()) {
+		        throw new IllegalArgumentException("Key cannot be null or empty");
+		    }
+			if (row.fields().size() + 1 != degree) {
+		        throw new IllegalArgumentException("Field list size does not match the expected number of columns");
+		    }
+			String digest = digestFunction(row.key());
+			byPrefix.computeIfAbsent(digest.substring(0, 2), prefix -> new LinkedHashMap<>()).put(digest, row);
+		}
+		if (byPrefix.isEmpty()) {
+			return;
+		}
+		
+		int size = readMetadataInt("size");
+		int fingerprint = readMetadataInt("fingerprint");
+		MerkleTree tree = readMerkle();
+		try {
+			for (var group : byPrefix.entrySet()) {
+				Path dir = dataDir.resolve(group.getKey());
+				Files.createDirectories(dir);
+				for (var entry : group.getValue().entrySet()) {
+					Path rowPath = dir.resolve(entry.getKey().substring(2));
+					Row row = entry.getValue();
+					if (Files.exists(rowPath)) { // hit
+						Row oldRow = readRowFromFile(rowPath);
+						fingerprint -= oldRow.hashCode();
+						if (tree != null) {
+							tree.remove(oldRow.key(), oldRow.fields());
+						}
+					} else { // miss
+						size++;
+					}
+					writeRowToFile(rowPath, row.key(), row.fields());
+					fingerprint += row.hashCode();
+					if (tree != null) {
+						tree.add(row.key(), row.fields());
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		writeMetadataInt("size", size);
+		writeMetadataInt("fingerprint", fingerprint);
+		if (tree != null) {
+			writeMerkle(tree);
+		}
+	}
+	
+	// Deletes the batch grouped by digest directory and updates the metadata once
+	@Override
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		Path dataDir = rootDir.resolve("data");
+		
+		Map<String, Set<String>> byPrefix = new TreeMap<>();
+		for (String key : keys) {
+			if (key == null || key.isEmpty()) {
+			    throw new IllegalArgumentException("Key cannot be null or empty");
+		    }
+			String digest = digestFunction(key);
+			byPrefix.computeIfAbsent(digest.substring(0, 2), prefix -> new LinkedHashSet<>()).add(digest);
+		}
+		
+		Map<String, List<Object>> removed = new LinkedHashMap<>();
+		int fingerprint = 0;
+		MerkleTree tree = readMerkle();
+		try {
+			for (var group : byPrefix.entrySet()) {
+				Path dir = dataDir.resolve(group.getKey());
+				for (String digest : group.getValue()) {
+					Path rowPath = dir.resolve(digest.substring(2));
+					if (Files.exists(rowPath)) {
+						Row oldRow = readRowFromFile(rowPath);
+						removed.put(oldRow.key(), oldRow.fields());
+						fingerprint -= oldRow.hashCode();
+						if (tree != null) {
+							tree.remove(oldRow.key(), oldRow.fields());
+						}
+						Files.delete(rowPath);
+					}
+				}
+				if (Files.isDirectory(dir)) {
+					try (var remaining = Files.list(dir)) {
+						if (remaining.findAny().isEmpty()) {
+							Files.delete(dir);
+						}
+					}
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		
+		if (!removed.isEmpty()) {
+			writeMetadataInt("size", readMetadataInt("size") - removed.size());
+			writeMetadataInt("fingerprint", readMetadataInt("fingerprint") + fingerprint);
+			if (tree != null) {
+				writeMerkle(tree);
+			}
+		}
+		return removed;
+	}
+	
+	// Writes each row file as it arrives, creating each digest directory once, and writes
+	// the size and fingerprint metadata at the end
+	@Override
+	public void load(Iterator<Row> rows) {
+		int degree = degree();
+		clear();
+		Path dataDir = rootDir.resolve("data");
+		Set<String> prefixes = new HashSet<>();
+		int size = 0;
+		int fingerprint = 0;
+		MerkleTree tree = readMerkle();
+		try {
+			while (rows.hasNext()) {
+				Row row = rows.next();
+				if (row.key() == null || row.key().isEmpty()) {
+			        throw new IllegalArgumentException("Key cannot be null or empty");
+			    }
+				if (row.fields().size() + 1 != degree) {
+			        throw new IllegalArgumentException("Field list size does not match the expected number of columns");
+			    }
+				String digest = digestFunction(row.key());
+				Path dir = dataDir.resolve(digest.substring(0, 2));
+				if (prefixes.add(digest.substring(0, 2))) {
+					Files.createDirectories(dir);
+				}
+				writeRowToFile(dir.resolve(digest.substring(2)), row.key(), row.fields());
+				size++;
+				fingerprint += row.hashCode();
+				if (tree != null) {
+					tree.add(row.key(), row.fields());
+				}
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		} finally {
+			// rows already written stay consistent with the metadata
+			writeMetadataInt("size", size);
+			writeMetadataInt("fingerprint", fingerprint);
+			if (tree != null) {
+				writeMerkle(tree);
+			}
+		}
+	}
+	
+	// Reads row files lazily; close the stream to release the directory walk
+	@Override
+	public Stream<Row> stream() {
+		try {
+			return Files.walk(rootDir.resolve("data"))
+				.filter(path -> Files.isRegularFile(path))
+				.map(path -> readRowFromFile(path));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	// metadata/merkle holds the bucket sums of the Merkle tree. It is written by the first
+	// merkleTree() call, with a scan, and every write keeps it up to date from then on
+	@Override
+	public MerkleTree merkleTree() {
+		MerkleTree tree = readMerkle();
+		if (tree == null) {
+			tree = MerkleTree.of(this);
+			writeMerkle(tree);
+		}
+		return tree;
+	}
+
+	@Override
+	public boolean maintainsMerkleTree() {
+		return Files.exists(rootDir.resolve("metadata").resolve("merkle"));
+	}
+
+	// Helper method to read metadata/merkle, null when no tree is kept
+	private MerkleTree readMerkle() {
+		Path path = rootDir.resolve("metadata").resolve("merkle");
+		if (Files.notExists(path)) {
+			return null;
+		}
+		try {
+			var sums = ByteBuffer.wrap(Files.readAllBytes(path)).asLongBuffer();
+			long[] buckets = new long[sums.remaining()];
+			sums.get(buckets);
+			return MerkleTree.fromBuckets(buckets);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Helper method to overwrite metadata/merkle with the tree's bucket sums
+	private void writeMerkle(MerkleTree tree) {
+		long[] buckets = tree.buckets();
+		var bytes = ByteBuffer.allocate(buckets.length * Long.BYTES);
+		bytes.asLongBuffer().put(buckets);
+		try {
+			Files.write(rootDir.resolve("metadata").resolve("merkle"), bytes.array());
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Helper method to move one row's digest in metadata/merkle, if a tree is kept; only
+	// the row's 8-byte bucket sum is read and rewritten
+	private void updateMerkle(String key, List<Object> oldFields, List<Object> newFields) {
+		Path path = rootDir.resolve("metadata").resolve("merkle");
+		if (Files.notExists(path)) {
+			return;
+		}
+		long delta = (newFields == null ? 0 : MerkleTree.digest(key, newFields))
+			- (oldFields == null ? 0 : MerkleTree.digest(key, oldFields));
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+			int depth = Integer.numberOfTrailingZeros((int) (channel.size() / Long.BYTES));
+			long position = (long) MerkleTree.bucketOf(key, depth) * Long.BYTES;
+			var sum = ByteBuffer.allocate(Long.BYTES);
+			channel.read(sum, position);
+			channel.write(sum.putLong(0, sum.getLong(0) + delta).clear(), position);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	// Helper method to read an int metadata file, treating a new empty file as 0
+	private int readMetadataInt(String name) {
+		Path path = rootDir.resolve("metadata").resolve(name);
+		try (DataInputStream dis = new DataInputStream(Files.newInputStream(path))) {
+			return dis.readInt();
+		} catch (EOFException e) {
+			return 0;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
+	// Helper method to overwrite an int metadata file
+	private void writeMetadataInt(String name, int value) {
+		Path path = rootDir.resolve("metadata").resolve(name);
+		try (DataOutputStream dos = new DataOutputStream(Files.newOutputStream(path))) {
+			dos.writeInt(value);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	@Override
 	public int degree() {
-		return columns().size();
+		return schema().degree();
 	}
 
 	@Override
@@ -451,6 +833,23 @@ public class BinaryTable implements FileTable {
 
 	@Override
 	public List<String> columns() {
+		return schema().columns();
+	}
+	
+	@Override
+	public int columnIndex(String columnName) {
+		return schema().indexOf(columnName);
+	}
+	
+	// Helper method to read the columns file once, the schema never changes
+	private Schema schema() {
+		if (schema == null) {
+			schema = new Schema(readColumns());
+		}
+		return schema;
+	}
+	
+	private List<String> readColumns() {
 		try {
 	        // Resolve the columns file in the metadata directory
 	        var columnsFile = rootDir.resolve("metadata").resolve("columns");
@@ -476,4 +875,21 @@ public class BinaryTable implements FileTable {
 	public String toString() {
 		return toPrettyString();
 	}
+
+	@Override
+	public Path path() {
+		return rootDir;
+	}
+
+	// Bytes of row files read, not counting the small metadata files
+	@Override
+	public long bytesRead() {
+		return bytesRead.sum();
+	}
+
+	// Bytes of row files written, not counting the small metadata files
+	@Override
+	public long bytesWritten() {
+		return bytesWritten;
+	}
 }
\ No newline at end of file
@@ -0,0 +1,66 @@
+package model;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+// DEFLATE from the JDK for blocks that are compressed and inflated whole, such as the
+// frames of CompressedLines or a BinaryTable row file. Blocks are raw DEFLATE streams
+// without the zlib header and checksum, since the callers keep their own lengths. A preset
+// dictionary of bytes the blocks are likely to contain lets even small blocks compress.
+// Deflaters and inflaters hold native memory, so each thread reuses one of each.
+public final class BlockCodec {
+	private static final ThreadLocal<Deflater> DEFLATERS =
+		ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+	private static final ThreadLocal<Inflater> INFLATERS = ThreadLocal.withInitial(() -> new Inflater(true));
+
+	private BlockCodec() {
+	}
+
+	public static byte[] compress(byte[] data, int offset, int length, byte[] dictionary) {
+		Deflater deflater = DEFLATERS.get();
+		deflater.reset();
+		if (dictionary != null) {
+			deflater.setDictionary(dictionary);
+		}
+		deflater.setInput(data, offset, length);
+		deflater.finish();
+		byte[] out = new byte[length / 2 + 64];
+		int size = 0;
+		while (!deflater.finished()) {
+			if (size == out.length) {
+				out = Arrays.copyOf(out, out.length * 2);
+			}
+			size += deflater.deflate(out, size, out.length - size);
+		}
+		return Arrays.copyOf(out, size);
+	}
+
+	// Inflates a whole block; sizeHint is the expected inflated length, or 0 if not known
+	public static byte[] decompress(byte[] data, int offset, int length, int sizeHint, byte[] dictionary) {
+		Inflater inflater = INFLATERS.get();
+		inflater.reset();
+		if (dictionary != null) {
+			inflater.setDictionary(dictionary);
+		}
+		inflater.setInput(data, offset, length);
+		byte[] out = new byte[sizeHint > 0 ? sizeHint : length * 4 + 64];
+		int size = 0;
+		try {
+			while (!inflater.finished()) {
+				if (size == out.length) {
+					out = Arrays.copyOf(out, out.length * 2);
+				}
+				int inflated = inflater.inflate(out, size, out.length - size);
+				if (inflated == 0 && inflater.needsInput()) {
+					throw new IllegalStateException("Truncated compressed block");
+				}
+				size += inflated;
+			}
+		} catch (DataFormatException e) {
+			throw new IllegalStateException("Corrupt compressed block", e);
+		}
+		return size == out.length ? out : Arrays.copyOf(out, size);
+	}
+}
@@ -6,15 +6,30 @@ import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+import model.Accumulator;
+import model.Aggregate;
+import model.CompressedLines;
 import model.DataTable;
+import model.DictionaryFile;
 import model.FileTable;
+import model.Interner;
 import model.Row;
+import model.Schema;
 
 public class CSVTable implements FileTable {
 
@@ -26,6 +41,11 @@ public class CSVTable implements FileTable {
 	
 	private static final Path base = Paths.get("db", "tables");
 	private final Path file;
+	private final LongAdder bytesRead = new LongAdder(); // reads may run in parallel under LockedTable
+	private long bytesWritten;
+	private Schema schema; // header, read once
+	private DictionaryFile dictionary; // <name>.dict, null unless strings are dictionary encoded
+	private boolean compressed; // lines stored in DEFLATE frames, see CompressedLines
 	
 	public CSVTable(String name, List<String> columns) {
 		try {
@@ -43,6 +63,9 @@ public class CSVTable implements FileTable {
 			writer.write(header);
 			writer.newLine();
 			}
+			// Codes of the previous table with this name are meaningless now
+			Files.deleteIfExists(dictionaryPath());
+			schema = new Schema(columns);
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
@@ -59,17 +82,53 @@ public class CSVTable implements FileTable {
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 		}
+		if (Files.exists(dictionaryPath())) {
+			dictionaryEncoding();
+		}
+		compressed = CompressedLines.isCompressed(file);
+	}
+	
+	// Stores the lines in compressed frames from now on, rewriting the current ones; the
+	// table stays compressed when reopened
+	public CSVTable blockCompression() {
+		if (!compressed) {
+			try {
+				List<String> lines = readLines();
+				compressed = true;
+				writeLines(lines);
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return this;
+	}
+	
+	// Writes string fields as @code into per-column dictionaries from now on, which keeps
+	// repeated values once in <name>.dict; the table stays encoded when reopened
+	public CSVTable dictionaryEncoding() {
+		if (dictionary == null) {
+			dictionary = new DictionaryFile(dictionaryPath());
+		}
+		return this;
+	}
+	
+	private Path dictionaryPath() {
+		return file.resolveSibling(name() + ".dict");
 	}
 		
 	@Override
 	public void clear() {	
 		try {
 			
-	        List<String> lines = Files.readAllLines(file);
+	        // Read only the header, the data rows are discarded
+	        String header;
+	        try (Stream<String> lines = lines()) {
+	            header = lines.findFirst().orElse(null);
+	        }
 	        
-	        if (!lines.isEmpty()) {
+	        if (header != null) {
 	            // Write only the header line back to the file, clearing all data rows
-	            Files.write(file, Collections.singletonList(lines.get(0)), StandardCharsets.UTF_8);
+	            writeLines(Collections.singletonList(header));
 	        }
 
 	    } catch (IOException e) {
@@ -90,7 +149,7 @@ public class CSVTable implements FileTable {
 				}
 			
 				// read all lines from the CSV file into a list of lines
-				List<String> lines = Files.readAllLines(file);
+				List<String> lines = readLines();
 				
 				List<Object> oldFields = null; // Store old fields in case of hit
 				
@@ -117,7 +176,7 @@ public class CSVTable implements FileTable {
 						// Insert row using move to front heuristic
 						lines.add(1, encode(newRow));
 						
-						Files.write(file, lines);
+						writeLines(lines);
 						
 						return oldFields;
 					}
@@ -125,7 +184,7 @@ public class CSVTable implements FileTable {
 				// Miss case: no matching key so just add new row at end of file
 				lines.add(encode(newRow));
 				
-				Files.write(file, lines);
+				writeLines(lines);
 				
 				return null;	
 			 
@@ -139,7 +198,7 @@ public class CSVTable implements FileTable {
 	public List<Object> get(String key) {		
 		try {
 			// read all lines from the CSV file into a list of lines
-			List<String> lines = Files.readAllLines(file);
+			List<String> lines = readLines();
 			
 			for (int i = 1; i < lines.size(); i++) {
 				String line = lines.get(i); // Get the current CSV line
@@ -150,7 +209,7 @@ public class CSVTable implements FileTable {
 					String hitRow = lines.remove(i);
 					lines.add(1, hitRow); // move to front
 					
-					Files.write(file, lines);
+					writeLines(lines);
 					
 					return decodedRow.fields();	
 				}
@@ -166,7 +225,7 @@ public class CSVTable implements FileTable {
 	@Override
 	public List<Object> remove(String key) {
 		try {
-	        List<String> lines = Files.readAllLines(file);
+	        List<String> lines = readLines();
 
 	        for (int i = 1; i < lines.size(); i++) {
 	            String line = lines.get(i); // Get the current CSV line
@@ -180,7 +239,7 @@ public class CSVTable implements FileTable {
 	        
 
 	                // Write the updated list of lines back to the file
-	                Files.write(file, lines);
+	                writeLines(lines);
 	                
 	                return decodedRow.fields(); // Return fields without key
 	            }
@@ -194,23 +253,186 @@ public class CSVTable implements FileTable {
 	       
 	    }
 	}
-
+	
+	// One read-modify-write pass for the whole batch: hits are replaced where they are,
+	// misses are appended, and the file is written once
 	@Override
-	public int degree() {
-		List<String> columnNames = columns();
-		if (columnNames != null) {
-			return columnNames.size();
+	public void putAll(Iterable<Row> rows) {
+		putAll(rows, null);
+	}
+	
+	// Same pass, decoding the replaced rows on the way instead of reading them first
+	@Override
+	public Map<String, List<Object>> getAndPutAll(Iterable<Row> rows) {
+		Map<String, List<Object>> previous = new LinkedHashMap<>();
+		putAll(rows, previous);
+		return previous;
+	}
+	
+	// Collects the fields of replaced rows into previous, unless it is null
+	private void putAll(Iterable<Row> rows, Map<String, List<Object>> previous) {
+		int degree = degree();
+		Map<String, Row> pending = new LinkedHashMap<>();
+		for (Row row : rows) {
+			// Guard condition for invalid key
+			if (row.key() == null || row.key().isEmpty()) {
+				throw new IllegalArgumentException("Invalid Key");
+			}
+			// Guard condition for fields that are too wide or too narrow
+			if ((row.fields().size() + 1) != degree) {
+				throw new IllegalArgumentException("Amount of fields do not match the degree.");
+			}
+			pending.put(row.key(), row);
+		}
+		if (pending.isEmpty()) {
+			return;
+		}
+		
+		try {
+			List<String> lines = readLines();
+			
+			for (int i = 1; i < lines.size(); i++) {
+				Row newRow = pending.remove((String) decodeField(lines.get(i), 0));
+				if (newRow != null) { // hit
+					if (previous != null) {
+						previous.put(newRow.key(), decode(lines.get(i)).fields());
+					}
+					lines.set(i, encode(newRow));
+				}
+			}
+			for (Row newRow : pending.values()) { // misses
+				lines.add(encode(newRow));
+			}
+			
+			writeLines(lines);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
 		}
-		return 0;
 	}
-
+	
+	// One read for the whole batch; hits move to the front in a single write
 	@Override
-	public int size() {
+	public Map<String, List<Object>> getAll(Collection<String> keys) {
+		Set<String> wanted = new HashSet<>(keys);
+		Map<String, List<Object>> found = new HashMap<>();
+		
 		try {
-		List<String> lines = Files.readAllLines(file);
+			List<String> lines = readLines();
+			List<String> hits = new ArrayList<>();
+			
+			for (int i = lines.size() - 1; i >= 1; i--) {
+				String line = lines.get(i);
+				if (wanted.contains((String) decodeField(line, 0))) {
+					Row decodedRow = decode(line);
+					found.put(decodedRow.key(), decodedRow.fields());
+					hits.add(line);
+					lines.remove(i);
+				}
+			}
+			if (!hits.isEmpty()) {
+				Collections.reverse(hits);
+				lines.addAll(1, hits); // move to front
+				writeLines(lines);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
 		
-		return lines.size() - 1; // don't count headers
+		// Report hits in the order the keys were given
+		Map<String, List<Object>> ordered = new LinkedHashMap<>();
+		for (String key : keys) {
+			if (found.containsKey(key)) {
+				ordered.put(key, found.get(key));
+			}
+		}
+		return ordered;
+	}
+	
+	// One read-modify-write pass for the whole batch
+	@Override
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		Set<String> wanted = new HashSet<>(keys);
+		Map<String, List<Object>> removed = new LinkedHashMap<>();
 		
+		try {
+			List<String> lines = readLines();
+			List<String> kept = new ArrayList<>(lines.size());
+			
+			// The header, if the file has one, is always kept
+			for (int i = 0; i < lines.size(); i++) {
+				String line = lines.get(i);
+				if (i > 0 && wanted.contains((String) decodeField(line, 0))) {
+					Row decodedRow = decode(line);
+					removed.put(decodedRow.key(), decodedRow.fields());
+				} else {
+					kept.add(line);
+				}
+			}
+			if (!removed.isEmpty()) {
+				writeLines(kept);
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		return removed;
+	}
+
+	// Decodes one line at a time instead of reading the whole file
+	@Override
+	public Stream<Row> stream() {
+		try {
+			Stream<String> lines = lines();
+			bytesRead.add(Files.size(file));
+			return lines.skip(1).map(this::decode); // skip the header
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	// Appends each encoded row through one buffered writer after the header
+	@Override
+	public void load(Iterator<Row> rows) {
+		int degree = degree();
+		clear();
+		try {
+			long before = Files.size(file);
+			try (BufferedWriter writer = compressed ? new BufferedWriter(CompressedLines.append(file))
+				: Files.newBufferedWriter(file, StandardOpenOption.APPEND)) {
+				while (rows.hasNext()) {
+					Row row = rows.next();
+					if (row.key() == null || row.key().isEmpty()) {
+						throw new IllegalArgumentException("Invalid Key");
+					}
+					if (row.fields().size() + 1 != degree) {
+						throw new IllegalArgumentException("Amount of fields do not match the degree.");
+					}
+					String line = encode(row);
+					flushDictionary();
+					writer.write(line);
+					writer.newLine();
+				}
+			}
+			bytesWritten += Files.size(file) - before;
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	@Override
+	public int degree() {
+		return schema().degree();
+	}
+
+	@Override
+	public int size() {
+		if (compressed) {
+			// frame headers hold the line counts
+			return (int) CompressedLines.lineCount(file) - 1;
+		}
+		// count lines without holding the file in memory
+		try (Stream<String> lines = lines()) {
+			bytesRead.add(Files.size(file));
+			return (int) lines.count() - 1; // don't count headers
 		} catch (IOException e) {
 			throw new RuntimeException(e);
 			
@@ -221,19 +443,11 @@ public class CSVTable implements FileTable {
 	public int hashCode() {
 		int fingerprint = 0;
 		
-		try {
-			List<String> lines = Files.readAllLines(file);
-			
-			// read all lines into list
-			 for (int i = 1; i < lines.size(); i++) {
-		            String line = lines.get(i); // Get the current CSV line
-		            Row decodedRow = decode(line); // Decode it into a list of fields
-		            
-		            fingerprint += decodedRow.hashCode();
-			 }
-		}
-		catch (IOException e) {
-			throw new RuntimeException(e);
+		// decode one row at a time
+		try (Stream<Row> rows = stream()) {
+			for (Row decodedRow : (Iterable<Row>) rows::iterator) {
+				fingerprint += decodedRow.hashCode();
+			}
 		}
 		return fingerprint;
 	}
@@ -264,7 +478,7 @@ public class CSVTable implements FileTable {
 		
 	    try {
 	        // Read all lines from the CSV file into a list of strings
-	        List<String> lines = Files.readAllLines(file);
+	        List<String> lines = readLines();
 	      
 	        // Iterate through the rows (excluding the header)
 	        for (int i = 1; i < lines.size(); i++) {
@@ -305,23 +519,25 @@ public class CSVTable implements FileTable {
 
 	@Override
 	public List<String> columns() {
-		try {
-			List<String> lines = Files.readAllLines(file);
-			
-			// if the lines are not empty
-			if (!lines.isEmpty()) {
-			List<String> columnNames = new ArrayList<>();
-			String topLine = lines.get(0);
-			columnNames = Arrays.asList(topLine.split(","));
-			
-			return columnNames;	
-		}
-		
-		return Collections.emptyList();
-		
-		} catch (IOException e) {
-		throw new RuntimeException(e);
+		return schema().columns();
 	}
+	
+	@Override
+	public int columnIndex(String columnName) {
+		return schema().indexOf(columnName);
+	}
+	
+	// Helper method to read the header line once, the schema never changes
+	private Schema schema() {
+		if (schema == null) {
+			try (Stream<String> lines = lines()) {
+				String topLine = lines.findFirst().orElse(null);
+				schema = new Schema(topLine == null ? Collections.emptyList() : Arrays.asList(topLine.split(",")));
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return schema;
 	}
 
 	@Override
@@ -329,6 +545,79 @@ public class CSVTable implements FileTable {
 		return toPrettyString();
 	}
 	
+	@Override
+	public Path path() {
+		return file;
+	}
+	
+	// get and getAll move hits to the front of the file
+	@Override
+	public boolean mutatesOnRead() {
+		return true;
+	}
+	
+	@Override
+	public long bytesRead() {
+		return bytesRead.sum();
+	}
+	
+	@Override
+	public long bytesWritten() {
+		return bytesWritten;
+	}
+	
+	// Helper method to read the whole file, counting the bytes read
+	private List<String> readLines() throws IOException {
+		List<String> lines = compressed ? CompressedLines.readLines(file) : Files.readAllLines(file);
+		bytesRead.add(Files.size(file));
+		return lines;
+	}
+	
+	// Helper method to rewrite the whole file, counting the bytes written
+	private void writeLines(List<String> lines) throws IOException {
+		flushDictionary();
+		if (compressed) {
+			CompressedLines.write(file, lines);
+		} else {
+			Files.write(file, lines, StandardCharsets.UTF_8);
+		}
+		bytesWritten += Files.size(file);
+	}
+	
+	// Helper method to stream the lines, inflating them when the file is compressed
+	private Stream<String> lines() throws IOException {
+		return compressed ? CompressedLines.lines(file) : Files.lines(file);
+	}
+	
+	// Values new to the dictionary are stored before the lines that refer to them
+	private void flushDictionary() {
+		if (dictionary != null) {
+			dictionary.flush();
+		}
+	}
+	
+	// Aggregates by streaming the file and decoding only the aggregated field of each line
+	@Override
+	public Number aggregate(Aggregate function, String columnName) {
+		int columnIndex = columnIndex(columnName);
+		if (columnIndex == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		
+		try (Stream<String> lines = lines()) {
+			bytesRead.add(Files.size(file));
+			return lines.skip(1) // skip the header
+				.parallel()
+				.collect(
+					() -> new Accumulator(function),
+					(partial, line) -> partial.add(decodeField(line, columnIndex)),
+					Accumulator::merge)
+				.result();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+	}
+	
 	// Helper method to encode a row to a CSV String
 	public String encode(Row row) {
 		
@@ -340,12 +629,17 @@ public class CSVTable implements FileTable {
 		List<Object> fields = row.fields();
 		
 		// For each field in fields
-		for (Object field : fields) {
+		for (int i = 0; i < fields.size(); i++) {
+			Object field = fields.get(i);
 			encodedRow.append(","); // comma delimiter
+			int code = dictionary != null && field instanceof String string ? dictionary.encode(i + 1, string) : -1;
 			
 			if (field == null) {
 				// Encode null as empty string
 				encodedRow.append("null");
+			} else if (code != -1) {
+				// Encode dictionary coded strings as @code
+				encodedRow.append("@").append(code);
 			} else if (field instanceof String) {
 				// Encode strings in double quotes and escape internal double quotes
 				encodedRow.append("\"").append(field.toString().replace("\"", "\"\"")).append("\""); // Enclose Strings in quotes and escape any quotes
@@ -372,29 +666,55 @@ public class CSVTable implements FileTable {
 		List<Object> decodedFields = new ArrayList<>();
 		
 		for (int i = 1; i < fields.length; i++) {
-			String field = fields[i].trim(); // trim whitespace
-			
-			if (field.equals("null")) {
-				// Empty string represents null
-				decodedFields.add(null); 
-			} else if (field.startsWith("\"") && field.endsWith("\"")) {
-				// Decode string field
-				String decodedString = field.substring(1, field.length() - 1).replace("\"\"", "\"");
-				decodedFields.add(decodedString);
-			} else if (field.equalsIgnoreCase("true") || field.equalsIgnoreCase("false")) {
-				// Decode boolean
-				decodedFields.add(Boolean.parseBoolean(field));
-			} else if (field.contains(".")) {
-	            // Decode floating point field
-	            decodedFields.add(Double.parseDouble(field));
-	        } else {
-	            // Decode integer field
-	            decodedFields.add(Integer.parseInt(field));
-	        }
+			decodedFields.add(decodeValue(fields[i], i));
 	    }
 		return new Row(key, decodedFields);
 	}
 	
+	// Helper method to decode a single CSV field of the column into its typed value
+	private Object decodeValue(String field, int columnIndex) {
+		field = field.trim(); // trim whitespace
+		
+		if (field.equals("null")) {
+			// Empty string represents null
+			return null;
+		} else if (field.startsWith("\"") && field.endsWith("\"")) {
+			// Decode string field, sharing repeated values
+			return Interner.shared().intern(field.substring(1, field.length() - 1).replace("\"\"", "\""));
+		} else if (field.startsWith("@")) {
+			// Decode dictionary coded string
+			if (dictionary == null) {
+				throw new IllegalStateException("Missing dictionary for coded field");
+			}
+			return dictionary.decode(columnIndex, Integer.parseInt(field.substring(1)));
+		} else if (field.equalsIgnoreCase("true") || field.equalsIgnoreCase("false")) {
+			// Decode boolean
+			return Boolean.parseBoolean(field);
+		} else if (field.contains(".")) {
+            // Decode floating point field
+            return Double.parseDouble(field);
+        } else {
+            // Decode integer field
+            return Integer.parseInt(field);
+        }
+	}
+	
+	// Helper method to decode only the field at a column index, without building a Row
+	private Object decodeField(String csvRow, int columnIndex) {
+		int start = 0;
+		for (int i = 0; i < columnIndex; i++) {
+			start = csvRow.indexOf(',', start) + 1;
+		}
+		int end = csvRow.indexOf(',', start);
+		String field = csvRow.substring(start, end == -1 ? csvRow.length() : end);
+		
+		if (columnIndex == 0) {
+			// The key is always a string
+			return decode(field).key();
+		}
+		return decodeValue(field, columnIndex);
+	}
+	
 public static CSVTable factory(DataTable hashTable) {
 	try {
 	Path file = CSVTable.base.resolve(hashTable.name() + ".csv");
@@ -409,10 +729,8 @@ public static CSVTable factory(DataTable hashTable) {
 	// instance of hashTable and csvTable
 	CSVTable csvTable = new CSVTable(hashTable.name(), hashTable.columns());
 
-	// use for each 
-		for (var row : hashTable) {
-			csvTable.put(row.key(), row.fields());
-		}
+	// stream every row in one pass
+	csvTable.load(hashTable.iterator());
 	return csvTable;
 
 	} catch (IOException e) {
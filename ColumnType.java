@@ -0,0 +1,24 @@
+package model;
+
+// The field types a table schema can declare, matching the values the tables already encode
+public enum ColumnType {
+	STRING(String.class),
+	INTEGER(Integer.class),
+	DOUBLE(Double.class),
+	BOOLEAN(Boolean.class);
+
+	private final Class<?> javaType;
+
+	ColumnType(Class<?> javaType) {
+		this.javaType = javaType;
+	}
+
+	public Class<?> javaType() {
+		return javaType;
+	}
+
+	// Null is accepted by every type
+	public boolean accepts(Object value) {
+		return value == null || javaType.isInstance(value);
+	}
+}
@@ -0,0 +1,506 @@
+package tables;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+
+import model.Accumulator;
+import model.Aggregate;
+import model.ColumnType;
+import model.DataTable;
+import model.Dictionary;
+import model.Row;
+import model.Table;
+
+public class ColumnarTable implements DataTable {
+
+	// Private variables
+	private String name;
+	private List<String> columns;
+	private List<ColumnType> types;
+	private String[] keys;
+	private Column[] fieldColumns;
+	private Map<String, Integer> positions;
+	private int size;
+	private int fingerprint;
+
+	private static final int INITIAL_CAPACITY = 16;
+
+	// One type per column; the key column (index 0) must be declared as STRING
+	public ColumnarTable(String name, List<String> columns, List<ColumnType> types) {
+		if (types.size() != columns.size()) {
+			throw new IllegalArgumentException("Amount of types do not match the amount of columns.");
+		}
+		if (types.get(0) != ColumnType.STRING) {
+			throw new IllegalArgumentException("Key column must be declared as STRING.");
+		}
+		this.name = name;
+		this.columns = List.copyOf(columns);
+		this.types = List.copyOf(types);
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		keys = new String[INITIAL_CAPACITY];
+		fieldColumns = new Column[types.size() - 1];
+		for (int i = 0; i < fieldColumns.length; i++) {
+			fieldColumns[i] = Column.of(types.get(i + 1), INITIAL_CAPACITY);
+		}
+		positions = new HashMap<>();
+		size = 0;
+		fingerprint = 0;
+	}
+
+	public List<ColumnType> types() {
+		return this.types;
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		// Guard condition for fields that are too wide or too narrow
+		if (fields.size() + 1 != degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+
+		// Guard condition for fields that do not match the declared types
+		for (int i = 0; i < fields.size(); i++) {
+			if (!types.get(i + 1).accepts(fields.get(i))) {
+				throw new IllegalArgumentException("Field " + columns.get(i + 1) + " must be " + types.get(i + 1) + ".");
+			}
+		}
+
+		Integer position = positions.get(key);
+		List<Object> oldFields = null;
+
+		if (position != null) { // Hit: overwrite the row in place
+			oldFields = fieldsAt(position);
+			fingerprint -= new Row(key, oldFields).hashCode();
+		} else { // Miss: append a row at the end of the columns
+			if (size == keys.length) {
+				grow();
+			}
+			position = size++;
+			keys[position] = key;
+			positions.put(key, position);
+		}
+
+		for (int i = 0; i < fieldColumns.length; i++) {
+			fieldColumns[i].set(position, fields.get(i));
+		}
+		fingerprint += new Row(key, fields).hashCode();
+		return oldFields;
+	}
+
+	@Override
+	public List<Object> get(String key) {
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		Integer position = positions.get(key);
+		return position != null ? fieldsAt(position) : null;
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		Integer position = positions.remove(key);
+		if (position == null) {
+			return null; // Miss
+		}
+
+		List<Object> oldFields = fieldsAt(position);
+		fingerprint -= new Row(key, oldFields).hashCode();
+
+		// Keep the columns dense by moving the last row into the freed position
+		int last = --size;
+		if (position != last) {
+			keys[position] = keys[last];
+			positions.put(keys[position], position);
+			for (Column column : fieldColumns) {
+				column.move(last, position);
+			}
+		}
+		keys[last] = null;
+		for (Column column : fieldColumns) {
+			column.set(last, null);
+		}
+		return oldFields;
+	}
+
+	// Scans the column directly and only materializes the rows that match
+	@Override
+	public DataTable filter(String columnName, Object value) {
+		int columnIndex = columns.indexOf(columnName);
+		if (columnIndex == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		if (columnIndex == 0) {
+			return DataTable.super.filter(columnName, value);
+		}
+
+		var filteredTable = new ColumnarTable(name() + " Filtered", columns, types);
+		IntPredicate matcher = fieldColumns[columnIndex - 1].matcher(value);
+		for (int position = 0; position < size; position++) {
+			if (matcher.test(position)) {
+				filteredTable.put(keys[position], fieldsAt(position));
+			}
+		}
+		return filteredTable;
+	}
+
+	// Aggregates straight over the column arrays; numeric columns never box
+	@Override
+	public Number aggregate(Aggregate function, String columnName) {
+		int columnIndex = columns.indexOf(columnName);
+		if (columnIndex < 1) {
+			return DataTable.super.aggregate(function, columnName);
+		}
+
+		Column column = fieldColumns[columnIndex - 1];
+		Accumulator accumulator = new Accumulator(function);
+		if (function != Aggregate.DISTINCT_COUNT && column instanceof NumericColumn numeric) {
+			for (int position = 0; position < size; position++) {
+				if (!numeric.isNull(position)) {
+					accumulator.add(numeric.number(position));
+				}
+			}
+		} else {
+			for (int position = 0; position < size; position++) {
+				if (!column.isNull(position)) {
+					accumulator.add(column.load(position));
+				}
+			}
+		}
+		return accumulator.result();
+	}
+
+	// Number of rows whose column holds the given value
+	public int count(String columnName, Object value) {
+		int columnIndex = columns.indexOf(columnName);
+		if (columnIndex < 1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		IntPredicate matcher = fieldColumns[columnIndex - 1].matcher(value);
+		int count = 0;
+		for (int position = 0; position < size; position++) {
+			if (matcher.test(position)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	@Override
+	public int degree() {
+		return columns.size();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return keys.length;
+	}
+
+	@Override
+	public int hashCode() {
+		return fingerprint;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj instanceof Table)) {
+			if (this.hashCode() == obj.hashCode())
+				return true;
+			}
+			return false;
+	}
+
+	// Rows are only built as the iterator reaches them
+	@Override
+	public Iterator<Row> iterator() {
+		return new Iterator<>() {
+			private int currentIndex = 0;
+
+			@Override
+			public boolean hasNext() {
+				return currentIndex < size;
+			}
+
+			@Override
+			public Row next() {
+				if (!hasNext()) {
+					throw new IllegalStateException("No more elements");
+				}
+				String key = keys[currentIndex];
+				return new Row(key, fieldsAt(currentIndex++));
+			}
+		};
+	}
+
+	@Override
+	public String name() {
+		return this.name;
+	}
+
+	@Override
+	public List<String> columns() {
+		return this.columns;
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	// Materialize the fields of one row from the columns
+	private List<Object> fieldsAt(int position) {
+		Object[] fields = new Object[fieldColumns.length];
+		for (int i = 0; i < fields.length; i++) {
+			fields[i] = fieldColumns[i].get(position);
+		}
+		return Arrays.asList(fields);
+	}
+
+	private void grow() {
+		int newCapacity = keys.length * 2;
+		keys = Arrays.copyOf(keys, newCapacity);
+		for (Column column : fieldColumns) {
+			column.grow(newCapacity);
+		}
+	}
+
+	// Storage for one field column, with a bitmap marking the positions that hold null
+	private abstract static class Column {
+		protected long[] nulls;
+
+		Column(int capacity) {
+			nulls = new long[words(capacity)];
+		}
+
+		static Column of(ColumnType type, int capacity) {
+			return switch (type) {
+				case INTEGER -> new IntColumn(capacity);
+				case DOUBLE -> new DoubleColumn(capacity);
+				case BOOLEAN -> new BooleanColumn(capacity);
+				case STRING -> new StringColumn(capacity);
+			};
+		}
+
+		static int words(int capacity) {
+			return (capacity + 63) >>> 6;
+		}
+
+		static boolean bit(long[] bits, int position) {
+			return (bits[position >>> 6] & (1L << position)) != 0;
+		}
+
+		static void setBit(long[] bits, int position, boolean value) {
+			if (value) {
+				bits[position >>> 6] |= 1L << position;
+			} else {
+				bits[position >>> 6] &= ~(1L << position);
+			}
+		}
+
+		boolean isNull(int position) {
+			return bit(nulls, position);
+		}
+
+		void set(int position, Object value) {
+			setBit(nulls, position, value == null);
+			if (value != null) {
+				store(position, value);
+			}
+		}
+
+		Object get(int position) {
+			return isNull(position) ? null : load(position);
+		}
+
+		void move(int from, int to) {
+			set(to, get(from));
+		}
+
+		// Predicate over positions holding the value, resolved once per scan
+		IntPredicate matcher(Object value) {
+			if (value == null) {
+				return this::isNull;
+			}
+			return position -> !isNull(position) && value.equals(load(position));
+		}
+
+		void grow(int capacity) {
+			nulls = Arrays.copyOf(nulls, words(capacity));
+		}
+
+		abstract void store(int position, Object value);
+
+		abstract Object load(int position);
+	}
+
+	// Integer and double columns, which aggregates read as primitives
+	private abstract static class NumericColumn extends Column {
+		NumericColumn(int capacity) {
+			super(capacity);
+		}
+
+		abstract double number(int position);
+	}
+
+	private static final class IntColumn extends NumericColumn {
+		private int[] values;
+
+		IntColumn(int capacity) {
+			super(capacity);
+			values = new int[capacity];
+		}
+
+		@Override
+		void store(int position, Object value) {
+			values[position] = (Integer) value;
+		}
+
+		@Override
+		Object load(int position) {
+			return values[position];
+		}
+
+		// Compare primitives so a filter scan never boxes
+		@Override
+		IntPredicate matcher(Object value) {
+			if (value instanceof Integer i) {
+				int target = i;
+				return position -> values[position] == target && !isNull(position);
+			}
+			return super.matcher(value);
+		}
+
+		@Override
+		double number(int position) {
+			return values[position];
+		}
+
+		@Override
+		void grow(int capacity) {
+			super.grow(capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	private static final class DoubleColumn extends NumericColumn {
+		private double[] values;
+
+		DoubleColumn(int capacity) {
+			super(capacity);
+			values = new double[capacity];
+		}
+
+		@Override
+		void store(int position, Object value) {
+			values[position] = (Double) value;
+		}
+
+		@Override
+		Object load(int position) {
+			return values[position];
+		}
+
+		@Override
+		double number(int position) {
+			return values[position];
+		}
+
+		@Override
+		void grow(int capacity) {
+			super.grow(capacity);
+			values = Arrays.copyOf(values, capacity);
+		}
+	}
+
+	private static final class BooleanColumn extends Column {
+		private long[] values;
+
+		BooleanColumn(int capacity) {
+			super(capacity);
+			values = new long[words(capacity)];
+		}
+
+		@Override
+		void store(int position, Object value) {
+			setBit(values, position, (Boolean) value);
+		}
+
+		@Override
+		Object load(int position) {
+			return bit(values, position);
+		}
+
+		@Override
+		void grow(int capacity) {
+			super.grow(capacity);
+			values = Arrays.copyOf(values, words(capacity));
+		}
+	}
+
+	// Strings are dictionary encoded: each distinct value is stored once and rows hold its code
+	private static final class StringColumn extends Column {
+		private int[] codes;
+		private final Dictionary dictionary = new Dictionary();
+
+		StringColumn(int capacity) {
+			super(capacity);
+			codes = new int[capacity];
+		}
+
+		@Override
+		void store(int position, Object value) {
+			codes[position] = dictionary.add((String) value);
+		}
+
+		@Override
+		Object load(int position) {
+			return dictionary.valueOf(codes[position]);
+		}
+
+		// Resolve the value to a code once, then compare ints
+		@Override
+		IntPredicate matcher(Object value) {
+			if (value instanceof String string) {
+				int target = dictionary.codeOf(string);
+				if (target == -1) {
+					return position -> false;
+				}
+				return position -> codes[position] == target && !isNull(position);
+			}
+			return super.matcher(value);
+		}
+
+		@Override
+		void grow(int capacity) {
+			super.grow(capacity);
+			codes = Arrays.copyOf(codes, capacity);
+		}
+	}
+}
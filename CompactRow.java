@@ -0,0 +1,94 @@
+package model;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+// Row storage for the in-memory tables: the fields live in one final Object[] and the row
+// is itself the immutable List view of them, so no ArrayList or wrapper is kept per row.
+// As a List it hashes and compares like any other list of the same fields, with the hash
+// computed once and cached; rowHash() is the matching Row.hashCode() for fingerprints.
+public final class CompactRow extends AbstractList<Object> implements RandomAccess {
+	private final String key;
+	private final Object[] values;
+	private int hash;
+	private boolean hashIsZero; // as in String, so racing threads at worst recompute
+
+	public CompactRow(String key, List<Object> fields) {
+		this.key = key;
+		// Another compact row is immutable, so its array can be shared
+		this.values = fields instanceof CompactRow other ? other.values : fields.toArray();
+	}
+
+	// Takes ownership of the array, for readers that decode fields straight into one
+	CompactRow(String key, Object[] values) {
+		this.key = key;
+		this.values = values;
+	}
+
+	// Reuses the row's storage when its fields already are a compact row for the same key
+	public static CompactRow of(Row row) {
+		if (row.fields() instanceof CompactRow compact && compact.key.equals(row.key())) {
+			return compact;
+		}
+		return new CompactRow(row.key(), row.fields());
+	}
+
+	public String key() {
+		return key;
+	}
+
+	public List<Object> fields() {
+		return this;
+	}
+
+	// A Row over this view; its hashCode() is rowHash() without touching the fields again
+	public Row toRow() {
+		return new Row(key, this);
+	}
+
+	// Same value as new Row(key(), fields()).hashCode()
+	public int rowHash() {
+		return key.hashCode() ^ hashCode();
+	}
+
+	@Override
+	public Object get(int index) {
+		return values[index];
+	}
+
+	@Override
+	public int size() {
+		return values.length;
+	}
+
+	@Override
+	public Object[] toArray() {
+		return values.clone();
+	}
+
+	// Same value as List.hashCode() over the fields
+	@Override
+	public int hashCode() {
+		int h = hash;
+		if (h == 0 && !hashIsZero) {
+			h = 1;
+			for (Object value : values)
+				h = 31 * h + (value == null ? 0 : value.hashCode());
+			if (h == 0) {
+				hashIsZero = true;
+			} else {
+				hash = h;
+			}
+		}
+		return h;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (obj instanceof CompactRow other && hashCode() != other.hashCode()) {
+			return false;
+		}
+		return super.equals(obj);
+	}
+}
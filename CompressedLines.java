@@ -0,0 +1,199 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Text lines stored as independently compressed frames. After a 4-byte magic, each frame
+// is a header [int lines][int raw bytes][int compressed bytes] and the DEFLATE data of
+// whole UTF-8 lines, about BLOCK_SIZE bytes of them. The headers are enough to hop from
+// frame to frame, so lines are counted and frames located without inflating anything, and
+// each frame inflates on its own: a parallel stream of lines inflates its frames in
+// parallel. New frames can be appended to the end of the file.
+public final class CompressedLines {
+	public static final int BLOCK_SIZE = 1 << 16;
+
+	// Not valid at the start of UTF-8 text, so plain files are never mistaken for framed ones
+	private static final byte[] MAGIC = {(byte) 0x89, 'C', 'S', 'Z'};
+	private static final int HEADER = 12;
+
+	private record Frame(long position, int lines, int rawLength, int compressedLength) {}
+
+	private CompressedLines() {
+	}
+
+	public static boolean isCompressed(Path file) {
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer magic = ByteBuffer.allocate(MAGIC.length);
+			while (magic.hasRemaining() && channel.read(magic) != -1) {
+				// Reads until the magic is in memory
+			}
+			return !magic.hasRemaining() && magic.flip().equals(ByteBuffer.wrap(MAGIC));
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public static List<String> readLines(Path file) {
+		try (Stream<String> lines = lines(file)) {
+			return new ArrayList<>(lines.toList());
+		}
+	}
+
+	// Inflates one frame at a time as the stream is consumed; close it to release the file
+	public static Stream<String> lines(Path file) {
+		FileChannel channel = open(file);
+		try {
+			return frames(channel).stream()
+				.flatMap(frame -> inflate(channel, frame).stream())
+				.onClose(() -> close(channel));
+		} catch (RuntimeException e) {
+			close(channel);
+			throw e;
+		}
+	}
+
+	// Lines of all frames, read from the frame headers alone
+	public static long lineCount(Path file) {
+		FileChannel channel = open(file);
+		try {
+			return frames(channel).stream().mapToLong(Frame::lines).sum();
+		} finally {
+			close(channel);
+		}
+	}
+
+	// Replaces the file with the lines
+	public static void write(Path file, List<String> lines) {
+		try (Writer writer = new FrameWriter(file, StandardOpenOption.TRUNCATE_EXISTING)) {
+			for (String line : lines) {
+				writer.write(line);
+				writer.write('\n');
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Writer whose text is appended to the file as new frames, cut at line ends once
+	// BLOCK_SIZE characters are buffered; the last frame is written on close
+	public static Writer append(Path file) {
+		return new FrameWriter(file, StandardOpenOption.APPEND);
+	}
+
+	private static FileChannel open(Path file) {
+		try {
+			return FileChannel.open(file, StandardOpenOption.READ);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void close(FileChannel channel) {
+		try {
+			channel.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static List<Frame> frames(FileChannel channel) {
+		try {
+			List<Frame> frames = new ArrayList<>();
+			long size = channel.size();
+			ByteBuffer header = ByteBuffer.allocate(HEADER);
+			for (long position = MAGIC.length; position < size;) {
+				read(channel, header.clear(), position);
+				Frame frame = new Frame(position + HEADER, header.getInt(0), header.getInt(4), header.getInt(8));
+				frames.add(frame);
+				position = frame.position() + frame.compressedLength();
+			}
+			return frames;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Positional reads, so frames of one channel can be inflated on several threads
+	private static List<String> inflate(FileChannel channel, Frame frame) {
+		try {
+			ByteBuffer compressed = ByteBuffer.allocate(frame.compressedLength());
+			read(channel, compressed, frame.position());
+			byte[] raw = BlockCodec.decompress(compressed.array(), 0, compressed.capacity(), frame.rawLength(), null);
+			return new String(raw, StandardCharsets.UTF_8).lines().toList();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static void read(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) == -1) {
+				throw new IllegalStateException("Truncated frame");
+			}
+		}
+	}
+
+	private static final class FrameWriter extends Writer {
+		private final FileChannel channel;
+		private final StringBuilder pending = new StringBuilder();
+
+		FrameWriter(Path file, StandardOpenOption mode) {
+			try {
+				channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, mode);
+				if (channel.size() == 0) {
+					channel.write(ByteBuffer.wrap(MAGIC));
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public void write(char[] chars, int offset, int length) throws IOException {
+			pending.append(chars, offset, length);
+			if (pending.length() >= BLOCK_SIZE) {
+				int end = pending.lastIndexOf("\n") + 1;
+				if (end > 0) {
+					writeFrame(pending.substring(0, end));
+					pending.delete(0, end);
+				}
+			}
+		}
+
+		// Frames hold whole lines, so nothing is written before a frame is full
+		@Override
+		public void flush() {
+		}
+
+		@Override
+		public void close() throws IOException {
+			try {
+				if (!pending.isEmpty()) {
+					writeFrame(pending.toString());
+					pending.setLength(0);
+				}
+			} finally {
+				channel.close();
+			}
+		}
+
+		private void writeFrame(String text) throws IOException {
+			byte[] raw = text.getBytes(StandardCharsets.UTF_8);
+			byte[] compressed = BlockCodec.compress(raw, 0, raw.length, null);
+			ByteBuffer frame = ByteBuffer.allocate(HEADER + compressed.length);
+			frame.putInt((int) text.lines().count()).putInt(raw.length).putInt(compressed.length).put(compressed);
+			frame.flip();
+			while (frame.hasRemaining())
+				channel.write(frame);
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+// Copies any table into a file table of another format. One thread decodes rows from the
+// source stream while the calling thread encodes them with the target's bulk load, and the
+// two hand rows over in batches through a bounded queue. At most queueCapacity * batchSize
+// rows are in memory at once, so the source may be far larger than the heap.
+//
+//   Conversion.from(csv).reportEvery(100_000, System.out::println).into(new BinaryTable(...));
+public class Conversion {
+
+	public record Progress(long rows, long total, long elapsedNanos) {
+
+		public double rowsPerSecond() {
+			return elapsedNanos == 0 ? 0 : rows * 1e9 / elapsedNanos;
+		}
+
+		// Fraction of the source copied, or -1 if the source size was not known
+		public double fraction() {
+			return total <= 0 ? -1 : (double) rows / total;
+		}
+
+		@Override
+		public String toString() {
+			String done = total < 0 ? "%,d rows".formatted(rows)
+				: "%,d/%,d rows (%.1f%%)".formatted(rows, total, total == 0 ? 100.0 : fraction() * 100);
+			return "%s in %.1f s, %,.0f rows/s".formatted(done, elapsedNanos / 1e9, rowsPerSecond());
+		}
+	}
+
+	// Marks the end of the source; compared by identity
+	private static final List<Row> END = new ArrayList<>();
+
+	private final Table source;
+	private int batchSize = 1024;
+	private int queueCapacity = 16;
+	private long reportEvery = Long.MAX_VALUE;
+	private Consumer<Progress> listener = progress -> {};
+	private boolean countSource = true;
+
+	private Conversion(Table source) {
+		this.source = source;
+	}
+
+	public static Conversion from(Table source) {
+		return new Conversion(source);
+	}
+
+	// Rows handed from the decode thread to the encode thread at a time
+	public Conversion batchSize(int batchSize) {
+		if (batchSize < 1) {
+			throw new IllegalArgumentException("Batch size must be positive.");
+		}
+		this.batchSize = batchSize;
+		return this;
+	}
+
+	// Batches the decode thread may run ahead of the encode thread
+	public Conversion queueCapacity(int queueCapacity) {
+		if (queueCapacity < 1) {
+			throw new IllegalArgumentException("Queue capacity must be positive.");
+		}
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	// Calls the listener on the encode thread after every given number of rows
+	public Conversion reportEvery(long rows, Consumer<Progress> listener) {
+		if (rows < 1) {
+			throw new IllegalArgumentException("Report interval must be positive.");
+		}
+		this.reportEvery = rows;
+		this.listener = listener;
+		return this;
+	}
+
+	// Skips source.size() up front for sources that are expensive to count; progress then
+	// reports no total
+	public Conversion withoutTotal() {
+		this.countSource = false;
+		return this;
+	}
+
+	// Replaces the contents of the target with the rows of the source and returns the target
+	public <T extends FileTable> T into(T target) {
+		if (source.degree() != target.degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+		run(target);
+		return target;
+	}
+
+	// Runs the conversion and returns the final progress, which is also sent to the listener
+	public Progress run(FileTable target) {
+		// Loading clears the target first, which would wipe a source stored in the same place
+		if (source == target || source instanceof FileTable file
+			&& file.path().toAbsolutePath().normalize().equals(target.path().toAbsolutePath().normalize())) {
+			throw new IllegalArgumentException("Cannot convert a table into itself.");
+		}
+		long total = countSource ? source.size() : -1;
+		long start = System.nanoTime();
+
+		BlockingQueue<List<Row>> queue = new ArrayBlockingQueue<>(queueCapacity);
+		Decoder decoder = new Decoder(queue);
+		Thread thread = new Thread(decoder, "convert-" + source.name());
+		thread.setDaemon(true);
+		thread.start();
+
+		Encoder rows = new Encoder(queue, decoder, total, start);
+		try {
+			target.load(rows);
+		} finally {
+			// Stops the decoder early if the target failed
+			thread.interrupt();
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+
+		Progress progress = new Progress(rows.count, total, System.nanoTime() - start);
+		listener.accept(progress);
+		return progress;
+	}
+
+	// Streams the source into the queue in batches
+	private class Decoder implements Runnable {
+		private final BlockingQueue<List<Row>> queue;
+		private volatile Throwable failure;
+
+		Decoder(BlockingQueue<List<Row>> queue) {
+			this.queue = queue;
+		}
+
+		@Override
+		public void run() {
+			try (Stream<Row> rows = source.stream()) {
+				List<Row> batch = new ArrayList<>(batchSize);
+				Iterator<Row> iterator = rows.iterator();
+				while (iterator.hasNext()) {
+					batch.add(iterator.next());
+					if (batch.size() == batchSize) {
+						queue.put(batch);
+						batch = new ArrayList<>(batchSize);
+					}
+				}
+				if (!batch.isEmpty()) {
+					queue.put(batch);
+				}
+			} catch (InterruptedException e) {
+				return; // the encoder has stopped
+			} catch (Throwable e) {
+				failure = e;
+			}
+
+			try {
+				queue.put(END);
+			} catch (InterruptedException e) {
+				// the encoder has stopped
+			}
+		}
+	}
+
+	// Hands the queued rows to the target's load, counting and reporting as it goes
+	private class Encoder implements Iterator<Row> {
+		private final BlockingQueue<List<Row>> queue;
+		private final Decoder decoder;
+		private final long total;
+		private final long start;
+		private Iterator<Row> batch = List.<Row>of().iterator();
+		private boolean done;
+		private long count;
+
+		Encoder(BlockingQueue<List<Row>> queue, Decoder decoder, long total, long start) {
+			this.queue = queue;
+			this.decoder = decoder;
+			this.total = total;
+			this.start = start;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!batch.hasNext() && !done) {
+				List<Row> next;
+				try {
+					next = queue.take();
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+					throw new IllegalStateException("Conversion interrupted", e);
+				}
+				if (next == END) {
+					done = true;
+					if (decoder.failure != null) {
+						throw new IllegalStateException("Failed to read " + source.name(), decoder.failure);
+					}
+				}
+				batch = next.iterator();
+			}
+			return batch.hasNext();
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more elements");
+			}
+			Row row = batch.next();
+			if (++count % reportEvery == 0) {
+				listener.accept(new Progress(count, total, System.nanoTime() - start));
+			}
+			return row;
+		}
+	}
+}
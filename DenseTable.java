@@ -0,0 +1,272 @@
+package tables;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import model.CompactRow;
+import model.DataTable;
+import model.Row;
+import model.Table;
+
+// Generalized SymbolTable: every key in a small, fixed domain maps straight to its own slot,
+// so put, get and remove are O(1) with no hashing or probing. A bitmap of occupied slots
+// lets iteration skip empty runs 64 slots at a time.
+public class DenseTable implements DataTable {
+
+	// Maps each key of the domain to a slot in 0 .. size() - 1, or -1 for keys outside it
+	public interface KeyDomain {
+		public int size();
+
+		public int indexOf(String key);
+
+		// Single characters from 0 to 127
+		public static KeyDomain ascii() {
+			return new KeyDomain() {
+				@Override
+				public int size() {
+					return 128;
+				}
+
+				@Override
+				public int indexOf(String key) {
+					return key.length() == 1 && key.charAt(0) < 128 ? key.charAt(0) : -1;
+				}
+			};
+		}
+
+		// Single letters A-Z then a-z, the same slots SymbolTable uses
+		public static KeyDomain letters() {
+			return new KeyDomain() {
+				@Override
+				public int size() {
+					return 52;
+				}
+
+				@Override
+				public int indexOf(String key) {
+					if (key.length() != 1) {
+						return -1;
+					}
+					char c = key.charAt(0);
+					return c >= 'A' && c <= 'Z' ? c - 'A' : c >= 'a' && c <= 'z' ? c - 'a' + 26 : -1;
+				}
+			};
+		}
+
+		// Decimal integers from min to max inclusive, such as status codes
+		public static KeyDomain range(int min, int max) {
+			if (min > max) {
+				throw new IllegalArgumentException("Range minimum cannot exceed the maximum.");
+			}
+			int size = Math.toIntExact((long) max - min + 1);
+			return new KeyDomain() {
+				@Override
+				public int size() {
+					return size;
+				}
+
+				@Override
+				public int indexOf(String key) {
+					long value = parse(key);
+					return value >= min && value <= max ? (int) (value - min) : -1;
+				}
+			};
+		}
+
+		// Names of the constants of an enum, slotted by ordinal
+		public static <E extends Enum<E>> KeyDomain of(Class<E> type) {
+			Map<String, Integer> ordinals = new HashMap<>();
+			for (E constant : type.getEnumConstants())
+				ordinals.put(constant.name(), constant.ordinal());
+			return new KeyDomain() {
+				@Override
+				public int size() {
+					return ordinals.size();
+				}
+
+				@Override
+				public int indexOf(String key) {
+					return ordinals.getOrDefault(key, -1);
+				}
+			};
+		}
+
+		// Parses an optionally signed decimal without allocating; Long.MIN_VALUE if malformed.
+		// Only the canonical spelling is accepted, so "0100", "+100" and "-0" are not keys
+		// and each slot has exactly one key.
+		private static long parse(String key) {
+			int length = key.length();
+			int start = length > 0 && key.charAt(0) == '-' ? 1 : 0;
+			if (length == start || length - start > 10) {
+				return Long.MIN_VALUE;
+			}
+			if (key.charAt(start) == '0' && (length - start > 1 || start == 1)) {
+				return Long.MIN_VALUE; // leading zero or negative zero
+			}
+			long value = 0;
+			for (int i = start; i < length; i++) {
+				char c = key.charAt(i);
+				if (c < '0' || c > '9') {
+					return Long.MIN_VALUE;
+				}
+				value = value * 10 + (c - '0');
+			}
+			return start == 1 ? -value : value;
+		}
+	}
+
+	// Private variables
+	private String name;
+	private List<String> columns;
+	private KeyDomain domain;
+	private CompactRow[] rows;
+	private long[] occupied;
+	private int size;
+	private int fingerprint;
+
+	public DenseTable(String name, List<String> columns, KeyDomain domain) {
+		this.name = name;
+		this.columns = columns;
+		this.domain = domain;
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		rows = new CompactRow[domain.size()];
+		occupied = new long[(domain.size() + 63) >>> 6];
+		size = 0;
+		fingerprint = 0;
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+		int index = indexOf(key);
+
+		// Guard condition for fields that are too wide or too narrow
+		if (fields.size() + 1 != degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+
+		CompactRow oldRow = rows[index];
+		CompactRow newRow = new CompactRow(key, fields);
+		rows[index] = newRow;
+		fingerprint += newRow.rowHash();
+
+		if (oldRow != null) { // Hit
+			fingerprint -= oldRow.rowHash();
+			return oldRow.fields();
+		}
+
+		// Miss
+		occupied[index >>> 6] |= 1L << index;
+		size++;
+		return null;
+	}
+
+	@Override
+	public List<Object> get(String key) {
+		CompactRow row = rows[indexOf(key)];
+		return row != null ? row.fields() : null;
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+		int index = indexOf(key);
+		CompactRow row = rows[index];
+		if (row == null) {
+			return null; // Miss
+		}
+
+		rows[index] = null;
+		occupied[index >>> 6] &= ~(1L << index);
+		fingerprint -= row.rowHash();
+		size--;
+		return row.fields();
+	}
+
+	@Override
+	public int degree() {
+		return columns.size();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return rows.length;
+	}
+
+	@Override
+	public int hashCode() {
+		return fingerprint;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj instanceof Table)) {
+			if (this.hashCode() == obj.hashCode())
+				return true;
+			}
+			return false;
+	}
+
+	// Visits only occupied slots: each bitmap word is consumed lowest set bit first
+	@Override
+	public Iterator<Row> iterator() {
+		return new Iterator<>() {
+			private int word = 0;
+			private long bits = occupied.length > 0 ? occupied[0] : 0;
+
+			@Override
+			public boolean hasNext() {
+				while (bits == 0 && word + 1 < occupied.length) {
+					bits = occupied[++word];
+				}
+				return bits != 0;
+			}
+
+			@Override
+			public Row next() {
+				if (!hasNext()) {
+					throw new IllegalStateException("No more elements");
+				}
+				int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+				bits &= bits - 1; // clear the lowest set bit
+				return rows[index].toRow();
+			}
+		};
+	}
+
+	@Override
+	public String name() {
+		return this.name;
+	}
+
+	@Override
+	public List<String> columns() {
+		return this.columns;
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	// Slot of the key, rejecting keys outside the domain
+	private int indexOf(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+		int index = domain.indexOf(key);
+		if (index < 0) {
+			throw new IllegalArgumentException("Key is outside the table's key domain.");
+		}
+		return index;
+	}
+}
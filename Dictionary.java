@@ -0,0 +1,39 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Dictionary of one column: each distinct value is stored once and gets a dense int code,
+// in order of first use, so rows can hold the code instead of the value. Codes are never
+// reassigned, which lets a file table keep them on disk next to its rows.
+public final class Dictionary {
+	private final List<String> values = new ArrayList<>();
+	private final Map<String, Integer> codes = new HashMap<>();
+
+	// Code of the value, or -1 if it has none yet
+	public int codeOf(String value) {
+		Integer code = codes.get(value);
+		return code == null ? -1 : code;
+	}
+
+	// Code of the value, assigning the next one if the value is new
+	public int add(String value) {
+		Integer code = codes.get(value);
+		if (code == null) {
+			code = values.size();
+			values.add(value);
+			codes.put(value, code);
+		}
+		return code;
+	}
+
+	public String valueOf(int code) {
+		return values.get(code);
+	}
+
+	public int size() {
+		return values.size();
+	}
+}
@@ -0,0 +1,132 @@
+package model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-column dictionaries of a file table, kept in a file next to its rows so the rows can
+// store a small code in place of a repeated string. The file only ever grows: each entry
+// is a column index and a value, and codes are given out per column in file order. Values
+// coded during a write are appended by flush(), which the tables call before writing the
+// rows that use them. Another process sharing the table through LockedTable appends under
+// the same lock, so unknown codes are read from the end of the file when they turn up.
+//
+// A column stops getting codes once its dictionary holds MAX_CODES values; from then on
+// its new values are stored as they are, so a high-cardinality column costs at most that.
+public final class DictionaryFile {
+	public static final int MAX_CODES = 4096;
+
+	// Longer values are stored as they are
+	private static final int MAX_LENGTH = 1024;
+
+	private final Path path;
+	private final List<Dictionary> columns = new ArrayList<>();
+	private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+	private final DataOutputStream pendingOut = new DataOutputStream(pending);
+	private long loaded; // bytes of the file read into the dictionaries
+
+	// Opens the dictionaries in the file, creating it if needed
+	public DictionaryFile(Path path) {
+		this.path = path;
+		try {
+			if (Files.notExists(path)) {
+				Files.createFile(path);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		refresh();
+	}
+
+	public Path path() {
+		return path;
+	}
+
+	// Code for the value in the column, or -1 if the value is stored as is
+	public synchronized int encode(int column, String value) {
+		if (value.length() > MAX_LENGTH) {
+			return -1;
+		}
+		int code = column(column).codeOf(value);
+		if (code == -1) {
+			refresh();
+			Dictionary dictionary = column(column);
+			code = dictionary.codeOf(value);
+			if (code == -1 && dictionary.size() < MAX_CODES) {
+				code = dictionary.add(value);
+				try {
+					pendingOut.writeInt(column);
+					pendingOut.writeUTF(value);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+		return code;
+	}
+
+	public synchronized String decode(int column, int code) {
+		if (code >= column(column).size()) {
+			refresh();
+		}
+		if (code < 0 || code >= column(column).size()) {
+			throw new IllegalStateException("Unknown code " + code + " for column " + column + ".");
+		}
+		return column(column).valueOf(code);
+	}
+
+	// Appends the values coded since the last flush
+	public synchronized void flush() {
+		if (pending.size() == 0) {
+			return;
+		}
+		try (OutputStream out = Files.newOutputStream(path, StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+			pending.writeTo(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		loaded += pending.size();
+		pending.reset();
+	}
+
+	private Dictionary column(int column) {
+		while (columns.size() <= column)
+			columns.add(new Dictionary());
+		return columns.get(column);
+	}
+
+	// Reads entries appended by other processes. Skipped while this one has unflushed
+	// entries, since it then holds the table's write lock and nobody else can append.
+	private void refresh() {
+		if (pending.size() != 0) {
+			return;
+		}
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			long size = channel.size();
+			if (size <= loaded) {
+				return;
+			}
+			ByteBuffer tail = ByteBuffer.allocate(Math.toIntExact(size - loaded));
+			while (tail.hasRemaining() && channel.read(tail, loaded + tail.position()) != -1) {
+				// Reads until the tail is in memory
+			}
+			var in = new DataInputStream(new ByteArrayInputStream(tail.array(), 0, tail.position()));
+			while (in.available() > 0)
+				column(in.readInt()).add(in.readUTF());
+			loaded += tail.position();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
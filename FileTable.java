@@ -1,6 +1,12 @@
 package model;
 
 import java.io.Flushable;
+import java.nio.file.Path;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface FileTable extends Table, Flushable, AutoCloseable {
 	@Override
@@ -12,4 +18,43 @@ public interface FileTable extends Table, Flushable, AutoCloseable {
 	public default void close() {
 		flush();
 	}
+
+	// File or directory holding the table
+	public Path path();
+
+	// Whether lookups rewrite storage, as CSVTable does when it moves a hit to the front
+	public default boolean mutatesOnRead() {
+		return false;
+	}
+
+	// Same as putAll, returning the fields the rows replaced by key. The default looks them up
+	// with getAll first; CSVTable, whose lookups rewrite the file, reads them in the write.
+	public default Map<String, List<Object>> getAndPutAll(Iterable<Row> rows) {
+		Set<String> keys = new LinkedHashSet<>();
+		for (Row row : rows)
+			keys.add(row.key());
+		Map<String, List<Object>> previous = getAll(keys);
+		putAll(rows);
+		return previous;
+	}
+
+	// Replaces the contents with the given rows, which must have distinct keys as the rows of
+	// any Table do. Implementations stream the rows to storage without checking for hits.
+	public default void load(Iterator<Row> rows) {
+		clear();
+		while (rows.hasNext()) {
+			Row row = rows.next();
+			put(row.key(), row.fields());
+		}
+	}
+
+	// Bytes read from storage since the table was opened, or 0 if not tracked
+	public default long bytesRead() {
+		return 0;
+	}
+
+	// Bytes written to storage since the table was opened, or 0 if not tracked
+	public default long bytesWritten() {
+		return 0;
+	}
 }
@@ -1,9 +1,23 @@
 package tables;
 
+import java.lang.invoke.VarHandle;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Iterator;
 import java.util.List;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import model.CompactRow;
 import model.DataTable;
+import model.MerkleTree;
 import model.Row;
+import model.Snapshot;
 import model.Table;
 
 public class HashTable implements DataTable {
@@ -11,30 +25,66 @@ public class HashTable implements DataTable {
 	// Private variables
 	private String name;
 	private List<String> columns;
-	private Row[] row;
+	private CompactRow[] row;
 	private int size;
+	private int tombstones;
 	private int fingerprint;
+	private int lastProbeLength;
+	private int lastIndex;
+	private long rehashes;
+
+	// TTL and eviction state; null unless the table is configured as a cache
+	private Cache cache;
+
+	// Built with a scan the first time merkleTree() is called, then kept up to date next to
+	// the fingerprint; null until then, so small tables do not pay for the buckets
+	private MerkleTree merkle;
+
+	// Open read views over the current slot array, and a bitmap of the segments they still
+	// share with it; null when no view has been taken since the array was last replaced
+	private final List<ReadView> views = new ArrayList<>();
+	private long[] shared;
+	private final AtomicInteger retainedViews = new AtomicInteger();
+	private long preservedSegments;
+
+	// Slots per copy-on-write segment
+	private static final int SEGMENT_SHIFT = 10;
+	private static final int SEGMENT_MASK = (1 << SEGMENT_SHIFT) - 1;
 
 	// recommended not required
-	private static final Row SENTINEL = new Row(null, null);
+	private static final CompactRow SENTINEL = new CompactRow(null, List.of());
 
 	// fill out with primes congruent to 3 mod 4
-	private static final int[] PRIMES = {7, 19, 43, 83, 167, 331, 683, 991, 1999};
+	private static final int[] PRIMES = {7, 19, 43, 83, 167, 331, 683, 991, 1999, 4003, 8011, 16063,
+		32143, 64303, 128659, 257339, 514711, 1029467, 2058967, 4117979, 8235967, 16472003,
+		32944031, 65888099, 131776199, 263552447, 527104967, 1054210007};
 
 	public HashTable(String name, List<String> columns) {
         this.name = name;
         this.columns = columns;
-		this.row = new Row[PRIMES[0]];
+		this.row = new CompactRow[PRIMES[0]];
     }
 
 	@Override
 	public void clear() {
+		detachViews();
 		size = 0;
-		row = new Row[PRIMES[0]];
+		tombstones = 0;
+		row = new CompactRow[PRIMES[0]];
 		fingerprint = 0;
+		if (merkle != null) {
+			merkle = new MerkleTree(merkle.depth());
+		}
+		if (cache != null) {
+			cache.clear();
+		}
 	}
 
 	private int hashFunction(String key) {
+		return hashFunction(key, capacity());
+	}
+
+	private static int hashFunction(String key, int capacity) {
 		// Constants for 32-bit FNV hash
 		final int FNV_OFFSET_BASIS = 0x811c9dc5; // Decimal Value: 2166136261
 		final int FNV_PRIME = 0x01000193; // Decimal Value: 16777619
@@ -55,7 +105,7 @@ public class HashTable implements DataTable {
 	
 		// hash mod capacity
 		// Use math.floorMod method 
-		return Math.floorMod(hash, capacity());
+		return Math.floorMod(hash, capacity);
 	}
 
 	@Override
@@ -71,9 +121,35 @@ public class HashTable implements DataTable {
 			throw new IllegalArgumentException("Amount of fields do not match the degree.");
 		}
 		
-		// Trigger rehash if the load factor becomes greater than 75%
-		if (loadFactor() >= 0.75) {
+		if (cache != null) {
+			return cache.put(new CompactRow(key, fields), cache.defaultTtl);
+		}
+		return put(new CompactRow(key, fields));
+	}
+
+	// Same, with the entry expiring after the given time instead of the table's default
+	public List<Object> put(String key, List<Object> fields, Duration ttl) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+		if (fields.size() + 1 != degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+		return cache().put(new CompactRow(key, fields), positive(ttl));
+	}
+	
+	// Probe and store a row; rehash passes the existing rows so nothing is copied or rehashed
+	private List<Object> put(CompactRow newRow) {
+		String key = newRow.key();
+		
+		// Trigger rehash if the load factor becomes greater than 75%; the field, since size()
+		// reclaims expired rows and this runs in the middle of a rehash too
+		if ((double) size / capacity() >= 0.75) {
 			rehash();
+		// Sweep tombstones with a same-size rehash once they push occupancy past 75%,
+		// otherwise a delete-heavy table degrades until misses walk the whole array
+		} else if (occupancy() >= 0.75) {
+			rehash(capacity());
 		}
 
 		// Hash the key
@@ -89,15 +165,25 @@ public class HashTable implements DataTable {
 //		if (index < 0) { 
 //			index += capacity; // Ensure the index is positive by adjusting negative mod results
 //		}
+
+		// Expired entries met while probing are reclaimed as tombstones
+		if (cache != null && cache.isExpired(index)) {
+			cache.expire(index);
+		}
 		
 		if (row[index] == null) {
 			// If a sentinel was found earlier, use its index to insert the new row
 			if (sentinelIndex != -1) {
 				index = sentinelIndex;
+				tombstones--;
 			}
-			row[index] = new Row(key, fields);
-			fingerprint += row[index].hashCode();
+			beforeWrite(index);
+			row[index] = newRow;
+			fingerprint += newRow.rowHash();
+			track(null, newRow);
 			size++;
+			lastProbeLength = j + 1;
+			lastIndex = index;
 			return null;
 		
 		} else if (row[index] == SENTINEL && sentinelIndex == -1) {
@@ -105,13 +191,29 @@ public class HashTable implements DataTable {
 		
 		} else if (row[index].key() != null && row[index].key().equals(key)) {
             List<Object> oldFields = row[index].fields();
-            fingerprint -= row[index].hashCode();
-            row[index] = new Row(key, fields);
-            fingerprint += row[index].hashCode();
+            fingerprint -= row[index].rowHash();
+            track(row[index], newRow);
+            beforeWrite(index);
+            row[index] = newRow;
+            fingerprint += newRow.rowHash();
+            lastProbeLength = j + 1;
+            lastIndex = index;
             return oldFields;
 		}
 	}
 		
+	// Every slot was probed without finding an empty one, so reuse the first sentinel
+	if (sentinelIndex != -1) {
+		beforeWrite(sentinelIndex);
+		row[sentinelIndex] = newRow;
+		fingerprint += newRow.rowHash();
+		track(null, newRow);
+		size++;
+		tombstones--;
+		lastProbeLength = capacity;
+		lastIndex = sentinelIndex;
+		return null;
+	}
 
     // If we get here, an error occurred
     throw new IllegalStateException("Unexpected fall-through: no available slot found");
@@ -127,6 +229,10 @@ public class HashTable implements DataTable {
 			throw new IllegalArgumentException("Key cannot be null or blank.");
 		}
 		
+		return cache == null ? lookup(key) : cache.get(key);
+	}
+
+	private List<Object> lookup(String key) {
 		// Hash the key
 		int hKey = hashFunction(key);
     	int capacity = capacity();
@@ -139,8 +245,13 @@ public class HashTable implements DataTable {
         	index += capacity; // Ensure positive index if mod result is negative
         }
 
+        if (cache != null && cache.isExpired(index)) {
+        	cache.expire(index);
+        }
+
         // If we encounter a miss, return null
         if (row[index] == null) {
+            lastProbeLength = j + 1;
             return null;
         
         // Skip over deleted entries
@@ -148,10 +259,13 @@ public class HashTable implements DataTable {
         	continue;
         // Hit: key found, return fields
         } else if (row[index].key().equals(key)) { 
+            lastProbeLength = j + 1;
+            lastIndex = index;
             return row[index].fields();
         }
     }
 
+    lastProbeLength = capacity;
     return null;  // Key not found after probing
 }
 
@@ -163,6 +277,10 @@ public class HashTable implements DataTable {
 			throw new IllegalArgumentException("Key cannot be null or empty");
 		}
 		
+		return cache == null ? delete(key) : cache.remove(key);
+	}
+
+	private List<Object> delete(String key) {
 		// Hash the key
 		int h = hashFunction(key);
 		int capacity = capacity();
@@ -174,21 +292,34 @@ public class HashTable implements DataTable {
 			if (index < 0) {
 				index += capacity; // Ensure positive index
 			}
+
+			if (cache != null && cache.isExpired(index)) {
+				cache.expire(index);
+			}
 	
 			if (row[index] == null) {  // Miss: empty slot means key is not present
+				lastProbeLength = j + 1;
 				return null; // Key not found
 			// Skip over deleted entries
 			} else if (row[index] == SENTINEL) { 
 				continue;
 			} else if (row[index] != SENTINEL && row[index].key().equals(key)) {  // Hit: key found, remove it
 		          List<Object> oldFields = row[index].fields();
-		          fingerprint -= row[index].hashCode();
+		          fingerprint -= row[index].rowHash();
+		          track(row[index], null);
+		          beforeWrite(index);
 		          row[index] = SENTINEL;  // Mark this slot as deleted with the sentinel
 		          size--;  // Decrease size correctly
+		          tombstones++;
+		          lastProbeLength = j + 1;
+		          if (cache != null) {
+		        	  cache.unlink(index);
+		          }
 		          return oldFields;  // Return the removed fields
 			}
 		}
 	
+		lastProbeLength = capacity;
 		return null;  // Key not found after probing
 	}
 
@@ -197,8 +328,12 @@ public class HashTable implements DataTable {
 		return columns.size();
 	}
 
+	// Expired rows are reclaimed first, so they are not counted
 	@Override
 	public int size() {
+		if (cache != null) {
+			cache.expireAll();
+		}
 		return size;
 	}
 
@@ -207,8 +342,272 @@ public class HashTable implements DataTable {
 		return row.length;
 	}
 
+	// Pre-sizes for the whole batch so it triggers at most one rehash
+	@Override
+	public void putAll(Iterable<Row> rows) {
+		if (rows instanceof Collection<?> batch) {
+			ensureCapacity(size + batch.size());
+		} else if (rows instanceof Table table) {
+			ensureCapacity(size + table.size());
+		}
+		DataTable.super.putAll(rows);
+	}
+
+	// Grow straight to the first prime that keeps the given row count under 75% load
+	private void ensureCapacity(int rowCount) {
+		int target = capacity();
+		while (target != 0 && rowCount >= target * 0.75) {
+			target = getNextPrime(target);
+		}
+		if (target > capacity()) {
+			rehash(target);
+		}
+	}
+
+	// Writes the slot array as it is, sentinels included, in one sequential pass
+	public void save(Path file) {
+		try (var out = new Snapshot.Writer(file, "HashTable")) {
+			out.writeString(name);
+			out.writeStrings(columns);
+			out.writeInt(capacity());
+			out.writeInt(size);
+			out.writeInt(tombstones);
+			out.writeInt(fingerprint);
+			for (CompactRow r : row) {
+				if (r == null) {
+					out.writeByte(0);
+				} else if (r == SENTINEL) {
+					out.writeByte(1);
+				} else {
+					out.writeByte(2);
+					out.writeRow(r);
+				}
+			}
+			out.commit();
+		}
+	}
+
+	// Rebuilds a table saved with save(); every row goes back to its old slot, so nothing is
+	// hashed, probed or rehashed
+	public static HashTable restore(Path file) {
+		try (var in = new Snapshot.Reader(file, "HashTable")) {
+			HashTable table = new HashTable(in.readString(), in.readStrings());
+			int capacity = in.readLength();
+			if (capacity == 0) {
+				throw new IllegalStateException("Corrupt snapshot: " + file);
+			}
+			table.row = new CompactRow[capacity];
+			table.size = in.readInt();
+			table.tombstones = in.readInt();
+			table.fingerprint = in.readInt();
+			int rows = 0;
+			int tombstones = 0;
+			for (int i = 0; i < table.row.length; i++) {
+				byte slot = in.readByte();
+				if (slot == 1) {
+					table.row[i] = SENTINEL;
+					tombstones++;
+				} else if (slot == 2) {
+					table.row[i] = in.readRow();
+					rows++;
+				}
+			}
+			// The counts drive the load factor and size(), so they must match the slots
+			if (rows != table.size || tombstones != table.tombstones) {
+				throw new IllegalStateException("Corrupt snapshot: " + file);
+			}
+			return table;
+		}
+	}
+
+	// Point-in-time, read-only view of the table that stays consistent while writers go on,
+	// for long scans such as filter, toPrettyString or a fingerprint check. Taking one is
+	// O(1): the view reads the live slot array, and the first write to each 1024-slot
+	// segment after it was taken copies that segment into the view first. A rehash or clear
+	// moves the table to a new array and leaves the old one to its views untouched.
+	// Call this on the thread that writes the table; the view may then be read on any
+	// thread. Close it when done, or writers keep copying segments for it.
+	public ReadView snapshot() {
+		if (cache != null) {
+			cache.expireAll();
+		}
+		views.removeIf(ReadView::isClosed);
+		ReadView view = new ReadView(row, size, fingerprint);
+		views.add(view);
+		if (shared == null) {
+			shared = new long[(segments(row.length) + 63) >>> 6];
+		}
+		Arrays.fill(shared, -1L);
+		retainedViews.incrementAndGet();
+		return view;
+	}
+
+	// Views taken with snapshot() and not yet closed
+	public int retainedSnapshots() {
+		return retainedViews.get();
+	}
+
+	// Segments copied by writers to keep open views consistent, since the table was created
+	public long preservedSegments() {
+		return preservedSegments;
+	}
+
+	public enum Eviction { LRU, LFU, CLOCK }
+
+	public enum RemovalCause { EXPIRED, EVICTED }
+
+	@FunctionalInterface
+	public interface EvictionListener {
+		void onRemoval(String key, List<Object> fields, RemovalCause cause);
+	}
+
+	public record CacheStats(long hits, long misses, long evictions, long expirations) {}
+
+	// Entries expire this long after they were last written, unless put with their own TTL
+	public HashTable expireAfterWrite(Duration ttl) {
+		cache().defaultTtl = positive(ttl);
+		return this;
+	}
+
+	// Evicts an entry whenever an insert takes the table past maximumSize rows: the least
+	// recently used (LRU), the least frequently used of a small random sample (LFU), or the
+	// next one the clock hand finds not referenced since its last pass (CLOCK)
+	public HashTable maximumSize(int maximumSize, Eviction policy) {
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("Maximum size must be positive.");
+		}
+		cache().limit(maximumSize, policy);
+		return this;
+	}
+
+	// Called after the operation that expired or evicted an entry, never during it
+	public HashTable onEviction(EvictionListener listener) {
+		cache().listener = listener;
+		return this;
+	}
+
+	// Gets that hit and missed, and entries evicted or expired, since the table became a cache
+	public CacheStats cacheStats() {
+		return cache == null ? new CacheStats(0, 0, 0, 0)
+			: new CacheStats(cache.hits, cache.misses, cache.evictions, cache.expirations);
+	}
+
+	// Reclaims every expired entry now, rather than a few per operation. size(), hashCode()
+	// and snapshot() do the same first.
+	public void cleanUp() {
+		if (cache != null) {
+			cache.expireAll();
+		}
+	}
+
+	// Number of slots the most recent put, get or remove examined
+	public int lastProbeLength() {
+		return lastProbeLength;
+	}
+
+	// Number of rehashes (growth or tombstone sweeps) since the table was created
+	public long rehashCount() {
+		return rehashes;
+	}
+
+	// Share of slots holding a row or a sentinel; this is what probe lengths depend on
+	public double occupancy() {
+		return (double) (size + tombstones) / capacity();
+	}
+
+	public record Diagnostics(int size, int capacity, int tombstones, double tombstoneRatio,
+		double loadFactor, double occupancy, double averageHitProbe, int maxHitProbe,
+		double averageMissProbe, int maxMissProbe, SortedMap<Integer, Integer> clusters) {}
+
+	// Full scan reporting how degraded the table is. Hit probes are measured for every
+	// stored key; miss probes for a miss starting at every home slot. Clusters maps the
+	// length of each run of adjacent non-empty slots (rows or sentinels) to how often it occurs.
+	public Diagnostics diagnostics() {
+		int capacity = capacity();
+
+		long hitProbes = 0;
+		int maxHitProbe = 0;
+		for (CompactRow r : row) {
+			if (r != null && r != SENTINEL) {
+				int home = hashFunction(r.key());
+				int j = 0;
+				while (j < capacity - 1 && row[probeIndex(home, j, capacity)] != r) {
+					j++;
+				}
+				hitProbes += j + 1;
+				maxHitProbe = Math.max(maxHitProbe, j + 1);
+			}
+		}
+
+		long missProbes = 0;
+		int maxMissProbe = 0;
+		for (int home = 0; home < capacity; home++) {
+			int j = 0;
+			while (j < capacity && row[probeIndex(home, j, capacity)] != null) {
+				j++;
+			}
+			int probes = Math.min(j + 1, capacity);
+			missProbes += probes;
+			maxMissProbe = Math.max(maxMissProbe, probes);
+		}
+
+		SortedMap<Integer, Integer> clusters = new TreeMap<>();
+		int run = 0;
+		for (int i = 0; i <= capacity; i++) {
+			if (i < capacity && row[i] != null) {
+				run++;
+			} else if (run > 0) {
+				clusters.merge(run, 1, Integer::sum);
+				run = 0;
+			}
+		}
+
+		return new Diagnostics(size, capacity, tombstones, (double) tombstones / capacity,
+			loadFactor(), occupancy(), size == 0 ? 0 : (double) hitProbes / size, maxHitProbe,
+			(double) missProbes / capacity, maxMissProbe, clusters);
+	}
+
+	// Slot for the j-th step of the alternating quadratic probe from the home slot, same as put/get/remove
+	private static int probeIndex(int home, int j, int capacity) {
+		int sign = (j % 2 == 0) ? 1 : -1;
+		return Math.floorMod(home + sign * (int) Math.pow(j, 2), capacity);
+	}
+
+	// Built with a scan on the first call; every write keeps it up to date from then on
+	@Override
+	public MerkleTree merkleTree() {
+		if (cache != null) {
+			cache.expireAll();
+		}
+		if (merkle == null) {
+			merkle = MerkleTree.of(this);
+		}
+		return merkle.copy();
+	}
+
+	@Override
+	public boolean maintainsMerkleTree() {
+		return merkle != null;
+	}
+
+	// Moves a row's digest in the Merkle tree, if there is one, as the fingerprint moves
+	private void track(CompactRow removed, CompactRow added) {
+		if (merkle != null) {
+			if (removed != null) {
+				merkle.remove(removed.key(), removed.fields());
+			}
+			if (added != null) {
+				merkle.add(added.key(), added.fields());
+			}
+		}
+	}
+
+	// Expired rows are reclaimed first, so they are not part of the fingerprint
 	@Override
 	public int hashCode() {
+		if (cache != null) {
+			cache.expireAll();
+		}
 		return fingerprint;
 	}
 
@@ -223,12 +622,16 @@ public class HashTable implements DataTable {
 
 	@Override
 	public Iterator<Row> iterator() {
+		if (cache != null) {
+			cache.tick();
+		}
 		return new Iterator<>() {
 			private int currentIndex = 0;
 
 			@Override
 			public boolean hasNext() {
-				while (currentIndex < row.length && (row[currentIndex] == null || row[currentIndex] == SENTINEL)) {
+				while (currentIndex < row.length && (row[currentIndex] == null || row[currentIndex] == SENTINEL
+					|| (cache != null && cache.isExpired(currentIndex)))) {
 					currentIndex++;
 				}
 				return currentIndex < row.length;
@@ -239,7 +642,7 @@ public class HashTable implements DataTable {
 				if (!hasNext()) {
 					throw new IllegalStateException("No more elements");
 				}
-				return row[currentIndex++];
+				return row[currentIndex++].toRow();
 			}
 		};
 	}
@@ -260,20 +663,34 @@ public class HashTable implements DataTable {
 	}
 
 	private void rehash() {
+		rehash(getNextPrime(capacity()));
+	}
+
+	private void rehash(int newSize) {
 		// let backup/copy reference = old array reference
-		Row[] oldTable = row;
+		CompactRow[] oldTable = row;
+		rehashes++;
+		detachViews();
 		
-		int newSize = getNextPrime(capacity());
-		// reassign table array reference = new larger empty array
-		row = new Row[newSize];
+		// reassign table array reference = new empty array (larger, or the same size for a sweep)
+		row = new CompactRow[newSize];
 		
-		// reinitialize size / fingerprint
+		// reinitialize size / tombstones / fingerprint
 		size = 0;
+		tombstones = 0;
 		fingerprint = 0;
+		if (merkle != null) {
+			merkle = new MerkleTree(merkle.depth());
+		}
+		// Cache metadata has to follow each row to its new slot
+		if (cache != null) {
+			cache.rehash(oldTable);
+			return;
+		}
 		// for each index in the backup/copy
-		for (Row r : oldTable) { // for each index in the old table
+		for (CompactRow r : oldTable) { // for each index in the old table
 			if (r != null && r != SENTINEL) { // if it isn't null or a sentinel
-				put(r.key(), r.fields()); // put the old elements in the new table
+				put(r); // put the old elements in the new table
 			}
 		}
 	}
@@ -287,6 +704,722 @@ public class HashTable implements DataTable {
 		}
 		return 0; // Return 0 if above loop unexpectedly fails
 	}
+
+	private Cache cache() {
+		if (cache == null) {
+			cache = new Cache();
+		}
+		return cache;
+	}
+
+	private static long positive(Duration ttl) {
+		if (ttl.isNegative() || ttl.isZero()) {
+			throw new IllegalArgumentException("TTL must be positive.");
+		}
+		return ttl.toNanos();
+	}
+
+	// Cache bookkeeping in arrays parallel to the slots, allocated only for the features in
+	// use. Removed entries become sentinels, the same tombstones remove() leaves. Expiry is
+	// checked on every slot a probe passes; a hierarchical timer wheel holding one timer per
+	// expiring slot reclaims the rest, a few timers per operation so there is never a full
+	// sweep. Rewriting or removing a row unlinks its timer, so the wheel only ever holds
+	// live deadlines.
+	private final class Cache {
+		// LEVELS wheels of WHEEL_BUCKETS buckets. A level-0 bucket spans one tick of
+		// 2^TICK_SHIFT ns (about 17 ms) and a bucket of each level above spans a whole turn
+		// of the level below, so far-future timers wait in a coarse bucket until it cascades
+		private static final int LEVELS = 6;
+		private static final int WHEEL_BITS = 6;
+		private static final int WHEEL_BUCKETS = 1 << WHEEL_BITS;
+		private static final int TICK_SHIFT = 24;
+		// Timers examined per operation
+		private static final int EXPIRE_BATCH = 16;
+		// Entries compared per LFU eviction
+		private static final int LFU_SAMPLES = 8;
+
+		// A slot's deadline, linked into one bucket of the wheel
+		private static final class Timer {
+			final long deadline;
+			int slot;
+			int level;
+			int bucket;
+			Timer prev;
+			Timer next;
+
+			Timer(long deadline, int slot) {
+				this.deadline = deadline;
+				this.slot = slot;
+			}
+		}
+
+		private record Removal(String key, List<Object> fields, RemovalCause cause) {}
+
+		long defaultTtl;
+		int maximumSize = Integer.MAX_VALUE;
+		Eviction policy;
+		EvictionListener listener;
+		long hits;
+		long misses;
+		long evictions;
+		long expirations;
+
+		private long now;
+		private Timer[] timers; // per slot, null for none; the array is null until a TTL is used
+		private int[] prev; // LRU list through the slots, most recent at head
+		private int[] next;
+		private int head = -1;
+		private int tail = -1;
+		private int[] frequency; // LFU
+		private boolean[] referenced; // CLOCK
+		private int hand;
+		private long random = 0x2545F4914F6CDD1DL;
+
+		private Timer[][] wheel; // bucket heads by level
+		private int[] timersPerLevel;
+		private long wheelTick; // next tick to process
+
+		private final List<Removal> pending = new ArrayList<>();
+
+		List<Object> put(CompactRow newRow, long ttl) {
+			tick();
+			expireDue(EXPIRE_BATCH);
+			List<Object> old = HashTable.this.put(newRow);
+			written(lastIndex, ttl, old == null);
+			if (old == null && size > maximumSize) {
+				evict(lastIndex);
+			}
+			notifyListener();
+			return old;
+		}
+
+		List<Object> get(String key) {
+			tick();
+			expireDue(EXPIRE_BATCH);
+			List<Object> fields = lookup(key);
+			if (fields == null) {
+				misses++;
+			} else {
+				hits++;
+				accessed(lastIndex);
+			}
+			notifyListener();
+			return fields;
+		}
+
+		List<Object> remove(String key) {
+			tick();
+			expireDue(EXPIRE_BATCH);
+			List<Object> old = delete(key);
+			notifyListener();
+			return old;
+		}
+
+		void tick() {
+			if (timers != null) {
+				now = System.nanoTime();
+			}
+		}
+
+		boolean isExpired(int index) {
+			return timers != null && timers[index] != null && timers[index].deadline - now <= 0
+				&& row[index] != null && row[index] != SENTINEL;
+		}
+
+		void expire(int index) {
+			expirations++;
+			removeSlot(index, RemovalCause.EXPIRED);
+		}
+
+		// Same tombstone as remove(); the listener hears about it once the operation is done
+		private void removeSlot(int index, RemovalCause cause) {
+			CompactRow removed = row[index];
+			fingerprint -= removed.rowHash();
+			track(removed, null);
+			beforeWrite(index);
+			row[index] = SENTINEL;
+			size--;
+			tombstones++;
+			unlink(index);
+			if (listener != null) {
+				pending.add(new Removal(removed.key(), removed.fields(), cause));
+			}
+		}
+
+		void notifyListener() {
+			if (pending.isEmpty()) {
+				return;
+			}
+			List<Removal> removals = new ArrayList<>(pending);
+			pending.clear();
+			for (Removal removal : removals)
+				listener.onRemoval(removal.key(), removal.fields(), removal.cause());
+		}
+
+		private void written(int index, long ttl, boolean inserted) {
+			cancel(index);
+			if (ttl > 0) {
+				if (timers == null) {
+					timers = new Timer[row.length];
+					newWheel();
+					now = System.nanoTime();
+					wheelTick = now >> TICK_SHIFT;
+				}
+				timers[index] = new Timer(now + ttl, index);
+				schedule(timers[index]);
+			}
+			admit(index, inserted);
+		}
+
+		private void admit(int index, boolean inserted) {
+			if (policy == null) {
+				return;
+			}
+			switch (policy) {
+				case LRU -> {
+					if (!inserted) {
+						detach(index);
+					}
+					attach(index);
+				}
+				case LFU -> frequency[index] = inserted ? 1 : Math.min(frequency[index] + 1, Integer.MAX_VALUE - 1);
+				case CLOCK -> referenced[index] = true;
+			}
+		}
+
+		private void accessed(int index) {
+			if (policy == null) {
+				return;
+			}
+			switch (policy) {
+				case LRU -> {
+					if (head != index) {
+						detach(index);
+						attach(index);
+					}
+				}
+				case LFU -> frequency[index] = Math.min(frequency[index] + 1, Integer.MAX_VALUE - 1);
+				case CLOCK -> referenced[index] = true;
+			}
+		}
+
+		// Forgets the slot's metadata once its row is gone
+		void unlink(int index) {
+			cancel(index);
+			if (policy == Eviction.LRU) {
+				detach(index);
+			} else if (policy == Eviction.LFU) {
+				frequency[index] = 0;
+			} else if (policy == Eviction.CLOCK) {
+				referenced[index] = false;
+			}
+		}
+
+		private void attach(int index) {
+			prev[index] = -1;
+			next[index] = head;
+			if (head != -1) {
+				prev[head] = index;
+			}
+			head = index;
+			if (tail == -1) {
+				tail = index;
+			}
+		}
+
+		private void detach(int index) {
+			if (prev[index] != -1) {
+				next[prev[index]] = next[index];
+			} else {
+				head = next[index];
+			}
+			if (next[index] != -1) {
+				prev[next[index]] = prev[index];
+			} else {
+				tail = prev[index];
+			}
+		}
+
+		void limit(int maximumSize, Eviction policy) {
+			this.maximumSize = maximumSize;
+			if (this.policy != policy) {
+				this.policy = policy;
+				allocatePolicy(row.length);
+				// Rows already stored start out equally recent, in slot order
+				for (int index = 0; index < row.length; index++)
+					if (row[index] != null && row[index] != SENTINEL)
+						admit(index, true);
+			}
+			while (size > maximumSize)
+				evict(-1);
+			notifyListener();
+		}
+
+		private void allocatePolicy(int capacity) {
+			head = -1;
+			tail = -1;
+			hand = 0;
+			prev = next = frequency = null;
+			referenced = null;
+			if (policy == Eviction.LRU) {
+				prev = new int[capacity];
+				next = new int[capacity];
+			} else if (policy == Eviction.LFU) {
+				frequency = new int[capacity];
+			} else if (policy == Eviction.CLOCK) {
+				referenced = new boolean[capacity];
+			}
+		}
+
+		// Evicts one entry other than the one just written
+		private void evict(int keep) {
+			int victim = switch (policy) {
+				case LRU -> tail == keep ? prev[tail] : tail;
+				case LFU -> sampleLeastFrequent(keep);
+				case CLOCK -> sweep(keep);
+			};
+			if (victim >= 0) {
+				evictions++;
+				removeSlot(victim, RemovalCause.EVICTED);
+			}
+		}
+
+		// Least used of a few occupied slots after a random start. Survivors have their counts
+		// halved, so old popularity fades without any pass over the whole table.
+		private int sampleLeastFrequent(int keep) {
+			random ^= random << 13;
+			random ^= random >>> 7;
+			random ^= random << 17;
+			int capacity = row.length;
+			int index = (int) Long.remainderUnsigned(random, capacity);
+			int victim = -1;
+			int sampled = 0;
+			for (int scanned = 0; scanned < capacity && sampled < LFU_SAMPLES; scanned++, index = (index + 1) % capacity) {
+				if (row[index] == null || row[index] == SENTINEL || index == keep) {
+					continue;
+				}
+				sampled++;
+				if (victim == -1 || frequency[index] < frequency[victim]) {
+					if (victim != -1) {
+						frequency[victim] >>>= 1;
+					}
+					victim = index;
+				} else {
+					frequency[index] >>>= 1;
+				}
+			}
+			return victim;
+		}
+
+		// Second-chance clock over the slots: referenced entries are cleared and passed over
+		private int sweep(int keep) {
+			int capacity = row.length;
+			for (int scanned = 0; scanned < 2 * capacity; scanned++) {
+				int index = hand;
+				hand = (hand + 1) % capacity;
+				if (row[index] == null || row[index] == SENTINEL || index == keep) {
+					continue;
+				}
+				if (!referenced[index]) {
+					return index;
+				}
+				referenced[index] = false;
+			}
+			return -1;
+		}
+
+		// Processes the ticks that have fully passed, handling at most budget timers: buckets
+		// that start at the tick cascade to lower levels, then the tick's level-0 timers fire.
+		// Every timer in a fired bucket is due, and ticks with nothing to do are skipped.
+		void expireDue(int budget) {
+			if (timers == null) {
+				return;
+			}
+			long nowTick = now >> TICK_SHIFT;
+			while (budget > 0 && wheelTick < nowTick) {
+				budget = cascade(budget);
+				Timer timer;
+				while (budget > 0 && (timer = wheel[0][(int) (wheelTick & (WHEEL_BUCKETS - 1))]) != null) {
+					budget--;
+					expire(timer.slot); // unlinks the timer
+				}
+				if (budget == 0) {
+					return; // the tick may not be done; the next operation picks it up again
+				}
+				wheelTick++;
+
+				// With the lowest levels empty, nothing happens before the next bucket of the
+				// first level that has timers
+				int empty = 0;
+				while (empty < LEVELS && timersPerLevel[empty] == 0)
+					empty++;
+				if (empty == LEVELS) {
+					wheelTick = nowTick;
+				} else if (empty > 0) {
+					int shift = empty * WHEEL_BITS;
+					wheelTick = Math.min(nowTick, (wheelTick + (1L << shift) - 1) >> shift << shift);
+				}
+			}
+		}
+
+		// Reclaims every expired entry, including those due within the current tick
+		void expireAll() {
+			tick();
+			expireDue(Integer.MAX_VALUE);
+			if (timers != null) {
+				cascade(Integer.MAX_VALUE);
+				for (Timer timer = wheel[0][(int) (wheelTick & (WHEEL_BUCKETS - 1))]; timer != null;) {
+					Timer next = timer.next;
+					if (timer.deadline - now <= 0) {
+						expire(timer.slot);
+					}
+					timer = next;
+				}
+			}
+			notifyListener();
+		}
+
+		// Moves the timers of the buckets starting at wheelTick down a level or more, top level
+		// first; returns the budget left
+		private int cascade(int budget) {
+			for (int level = LEVELS - 1; level > 0 && budget > 0; level--) {
+				int shift = level * WHEEL_BITS;
+				if ((wheelTick & ((1L << shift) - 1)) != 0) {
+					continue;
+				}
+				int bucket = (int) ((wheelTick >> shift) & (WHEEL_BUCKETS - 1));
+				Timer timer;
+				while (budget > 0 && (timer = wheel[level][bucket]) != null) {
+					budget--;
+					unschedule(timer);
+					schedule(timer);
+				}
+			}
+			return budget;
+		}
+
+		// Files the timer at the lowest level whose buckets still tell its tick apart from
+		// wheelTick's, so it cascades when that bucket starts. Ticks already passed go in the
+		// current bucket; beyond the top level's reach, in its last bucket, which cascades it
+		// back up.
+		private void schedule(Timer timer) {
+			long tick = Math.max(timer.deadline >> TICK_SHIFT, wheelTick);
+			int level = 0;
+			while (level < LEVELS - 1
+				&& (tick >> (level * WHEEL_BITS)) - (wheelTick >> (level * WHEEL_BITS)) >= WHEEL_BUCKETS)
+				level++;
+			int shift = level * WHEEL_BITS;
+			long block = Math.min(tick >> shift, (wheelTick >> shift) + WHEEL_BUCKETS - 1);
+			timer.level = level;
+			timer.bucket = (int) (block & (WHEEL_BUCKETS - 1));
+			Timer head = wheel[level][timer.bucket];
+			timer.prev = null;
+			timer.next = head;
+			if (head != null) {
+				head.prev = timer;
+			}
+			wheel[level][timer.bucket] = timer;
+			timersPerLevel[level]++;
+		}
+
+		private void unschedule(Timer timer) {
+			if (timer.prev != null) {
+				timer.prev.next = timer.next;
+			} else {
+				wheel[timer.level][timer.bucket] = timer.next;
+			}
+			if (timer.next != null) {
+				timer.next.prev = timer.prev;
+			}
+			timer.prev = null;
+			timer.next = null;
+			timersPerLevel[timer.level]--;
+		}
+
+		// Drops the slot's timer, if it has one
+		private void cancel(int index) {
+			if (timers != null && timers[index] != null) {
+				unschedule(timers[index]);
+				timers[index] = null;
+			}
+		}
+
+		// Moves every live row to the new array in eviction order, carrying its metadata
+		void rehash(CompactRow[] oldRows) {
+			Timer[] oldTimers = timers;
+			int[] oldPrev = prev;
+			int[] oldFrequency = frequency;
+			boolean[] oldReferenced = referenced;
+			int oldTail = tail;
+			if (timers != null) {
+				timers = new Timer[row.length];
+			}
+			allocatePolicy(row.length);
+
+			if (policy == Eviction.LRU) {
+				// Least recent first, so each row re-attached at the head keeps its order
+				for (int index = oldTail; index != -1; index = oldPrev[index])
+					move(oldRows, index, oldTimers, null, null);
+			} else {
+				for (int index = 0; index < oldRows.length; index++)
+					if (oldRows[index] != null && oldRows[index] != SENTINEL)
+						move(oldRows, index, oldTimers, oldFrequency, oldReferenced);
+			}
+		}
+
+		private void move(CompactRow[] oldRows, int index, Timer[] oldTimers, int[] oldFrequency,
+			boolean[] oldReferenced) {
+			CompactRow r = oldRows[index];
+			Timer timer = oldTimers == null ? null : oldTimers[index];
+			if (timer != null && timer.deadline - now <= 0) {
+				// Already expired: not copied, which reclaims it
+				unschedule(timer);
+				expirations++;
+				if (listener != null) {
+					pending.add(new Removal(r.key(), r.fields(), RemovalCause.EXPIRED));
+				}
+				return;
+			}
+			HashTable.this.put(r);
+			int slot = lastIndex;
+			if (timer != null) {
+				timer.slot = slot;
+				timers[slot] = timer;
+			}
+			if (policy == Eviction.LRU) {
+				attach(slot);
+			} else if (policy == Eviction.LFU) {
+				frequency[slot] = oldFrequency[index];
+			} else if (policy == Eviction.CLOCK) {
+				referenced[slot] = oldReferenced[index];
+			}
+		}
+
+		void clear() {
+			if (timers != null) {
+				timers = new Timer[row.length];
+				newWheel();
+				wheelTick = System.nanoTime() >> TICK_SHIFT;
+			}
+			allocatePolicy(row.length);
+			pending.clear();
+		}
+
+		private void newWheel() {
+			wheel = new Timer[LEVELS][WHEEL_BUCKETS];
+			timersPerLevel = new int[LEVELS];
+		}
+	}
+
+	private static int segments(int capacity) {
+		return (capacity + SEGMENT_MASK) >>> SEGMENT_SHIFT;
+	}
+
+	// Called before every slot write; cheap unless an open view still shares the segment
+	private void beforeWrite(int index) {
+		if (shared != null) {
+			int segment = index >>> SEGMENT_SHIFT;
+			if ((shared[segment >>> 6] & (1L << segment)) != 0) {
+				preserve(segment);
+			}
+		}
+	}
+
+	// Hands every open view that still reads this segment from the live array its own copy
+	private void preserve(int segment) {
+		shared[segment >>> 6] &= ~(1L << segment);
+		int start = segment << SEGMENT_SHIFT;
+		CompactRow[] copy = Arrays.copyOfRange(row, start, Math.min(start + SEGMENT_MASK + 1, row.length));
+		boolean copied = false;
+		for (var it = views.iterator(); it.hasNext();) {
+			ReadView view = it.next();
+			if (view.isClosed()) {
+				it.remove();
+			} else if (view.saved.get(segment) == null) {
+				view.saved.set(segment, copy);
+				copied = true;
+			}
+		}
+		if (copied) {
+			preservedSegments++;
+		}
+		if (views.isEmpty()) {
+			shared = null;
+		}
+		// The copy must be visible before the slot write it protects; see ReadView.slot
+		VarHandle.releaseFence();
+	}
+
+	// The current array is about to be replaced and never written again, so its views are complete
+	private void detachViews() {
+		views.clear();
+		shared = null;
+	}
+
+	public final class ReadView implements Table, AutoCloseable {
+		private final CompactRow[] slots;
+		private final AtomicReferenceArray<CompactRow[]> saved;
+		private final int size;
+		private final int fingerprint;
+		private final AtomicBoolean closed = new AtomicBoolean();
+
+		private ReadView(CompactRow[] slots, int size, int fingerprint) {
+			this.slots = slots;
+			this.saved = new AtomicReferenceArray<>(segments(slots.length));
+			this.size = size;
+			this.fingerprint = fingerprint;
+		}
+
+		public boolean isClosed() {
+			return closed.get();
+		}
+
+		@Override
+		public void close() {
+			if (closed.compareAndSet(false, true)) {
+				retainedViews.decrementAndGet();
+			}
+		}
+
+		@Override
+		public void clear() {
+			throw new UnsupportedOperationException("Snapshots are read-only.");
+		}
+
+		@Override
+		public List<Object> put(String key, List<Object> fields) {
+			throw new UnsupportedOperationException("Snapshots are read-only.");
+		}
+
+		@Override
+		public List<Object> remove(String key) {
+			throw new UnsupportedOperationException("Snapshots are read-only.");
+		}
+
+		@Override
+		public List<Object> get(String key) {
+			if (key == null) {
+				throw new IllegalArgumentException("Key cannot be null or blank.");
+			}
+			ensureOpen();
+
+			int capacity = slots.length;
+			int hKey = hashFunction(key, capacity);
+			for (int j = 0; j < capacity; j++) {
+				CompactRow r = slot(probeIndex(hKey, j, capacity));
+				if (r == null) {
+					return null;
+				} else if (r != SENTINEL && r.key().equals(key)) {
+					return r.fields();
+				}
+			}
+			return null;
+		}
+
+		@Override
+		public int degree() {
+			return columns.size();
+		}
+
+		@Override
+		public int size() {
+			return size;
+		}
+
+		@Override
+		public int hashCode() {
+			return fingerprint;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Table && hashCode() == obj.hashCode();
+		}
+
+		@Override
+		public Iterator<Row> iterator() {
+			ensureOpen();
+			return new Iterator<>() {
+				private CompactRow[] segment;
+				private int segmentIndex = -1;
+				private int currentIndex = 0;
+
+				@Override
+				public boolean hasNext() {
+					while (currentIndex < slots.length) {
+						if (currentIndex >>> SEGMENT_SHIFT != segmentIndex) {
+							segmentIndex = currentIndex >>> SEGMENT_SHIFT;
+							segment = segment(segmentIndex);
+						}
+						CompactRow r = segment[currentIndex & SEGMENT_MASK];
+						if (r != null && r != SENTINEL) {
+							return true;
+						}
+						currentIndex++;
+					}
+					return false;
+				}
+
+				@Override
+				public Row next() {
+					if (!hasNext()) {
+						throw new IllegalStateException("No more elements");
+					}
+					return segment[currentIndex++ & SEGMENT_MASK].toRow();
+				}
+			};
+		}
+
+		@Override
+		public String name() {
+			return name;
+		}
+
+		@Override
+		public List<String> columns() {
+			return columns;
+		}
+
+		@Override
+		public String toString() {
+			return toPrettyString();
+		}
+
+		// A slot as it was when the view was taken. A writer copies a segment into saved
+		// before its first write there, so if the live read saw a newer row the copy is
+		// already visible and is read instead.
+		private CompactRow slot(int index) {
+			int segment = index >>> SEGMENT_SHIFT;
+			CompactRow[] copy = saved.get(segment);
+			if (copy != null) {
+				return copy[index & SEGMENT_MASK];
+			}
+			CompactRow r = slots[index];
+			VarHandle.acquireFence();
+			copy = saved.get(segment);
+			return copy != null ? copy[index & SEGMENT_MASK] : r;
+		}
+
+		// Same check for a whole segment, copied out of the live array in one go
+		private CompactRow[] segment(int segment) {
+			ensureOpen();
+			CompactRow[] copy = saved.get(segment);
+			if (copy != null) {
+				return copy;
+			}
+			int start = segment << SEGMENT_SHIFT;
+			CompactRow[] live = Arrays.copyOfRange(slots, start, Math.min(start + SEGMENT_MASK + 1, slots.length));
+			VarHandle.acquireFence();
+			copy = saved.get(segment);
+			return copy != null ? copy : live;
+		}
+
+		private void ensureOpen() {
+			if (isClosed()) {
+				throw new IllegalStateException("Snapshot is closed.");
+			}
+		}
+	}
  
 }
 		
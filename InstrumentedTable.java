@@ -0,0 +1,404 @@
+package model;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToDoubleFunction;
+import java.util.stream.Stream;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+import tables.HashTable;
+
+// Decorator that records latency histograms and hit/miss counts for every operation on
+// the wrapped table, plus bytes moved for file tables and probe lengths for HashTable.
+// Recording allocates nothing; read the numbers with snapshot() or over JMX.
+public class InstrumentedTable implements Table, Flushable, AutoCloseable {
+
+	public enum Operation {
+		PUT, GET, REMOVE, ITERATE, FILTER, FLUSH;
+
+		public String label() {
+			return name().toLowerCase();
+		}
+	}
+
+	public record OperationStats(long count, long hits, long misses, double meanNanos,
+		long p50Nanos, long p99Nanos, long p999Nanos, long maxNanos) {}
+
+	public record Snapshot(String name, Map<Operation, OperationStats> operations, long bytesRead,
+		long bytesWritten, double meanProbeLength, long maxProbeLength, long rehashes, int retainedSnapshots,
+		long slowOperations) {}
+
+	private static final System.Logger LOG = System.getLogger(InstrumentedTable.class.getName());
+
+	private final Table delegate;
+	private final LatencyHistogram[] latencies = new LatencyHistogram[Operation.values().length];
+	private final LongAdder[] hits = new LongAdder[Operation.values().length];
+	private final LongAdder[] misses = new LongAdder[Operation.values().length];
+	private final LatencyHistogram probeLengths = new LatencyHistogram();
+	private final LongAdder slowOperations = new LongAdder();
+	private long slowThresholdNanos = Long.MAX_VALUE;
+	private ObjectName mbeanName;
+
+	public InstrumentedTable(Table delegate) {
+		this.delegate = delegate;
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i] = new LatencyHistogram();
+			hits[i] = new LongAdder();
+			misses[i] = new LongAdder();
+		}
+	}
+
+	public Table delegate() {
+		return delegate;
+	}
+
+	// Log operations slower than the threshold as warnings
+	public InstrumentedTable logSlowerThan(Duration threshold) {
+		this.slowThresholdNanos = threshold.toNanos();
+		return this;
+	}
+
+	// Registers the metrics under model:type=Table,name=<table name> on the platform MBean server
+	public InstrumentedTable registerMBean() {
+		try {
+			mbeanName = new ObjectName("model:type=Table,name=" + ObjectName.quote(name()));
+			ManagementFactory.getPlatformMBeanServer().registerMBean(new Metrics(), mbeanName);
+			return this;
+		} catch (JMException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	public Snapshot snapshot() {
+		Map<Operation, OperationStats> operations = new EnumMap<>(Operation.class);
+		for (Operation op : Operation.values()) {
+			LatencyHistogram histogram = latencies[op.ordinal()];
+			operations.put(op, new OperationStats(histogram.count(), hits[op.ordinal()].sum(),
+				misses[op.ordinal()].sum(), histogram.mean(), histogram.percentile(50),
+				histogram.percentile(99), histogram.percentile(99.9), histogram.max()));
+		}
+
+		long bytesRead = delegate instanceof FileTable file ? file.bytesRead() : 0;
+		long bytesWritten = delegate instanceof FileTable file ? file.bytesWritten() : 0;
+		long rehashes = delegate instanceof HashTable hash ? hash.rehashCount() : 0;
+		int retainedSnapshots = delegate instanceof HashTable hash ? hash.retainedSnapshots() : 0;
+		return new Snapshot(name(), operations, bytesRead, bytesWritten, probeLengths.mean(),
+			probeLengths.max(), rehashes, retainedSnapshots, slowOperations.sum());
+	}
+
+	public void reset() {
+		for (int i = 0; i < latencies.length; i++) {
+			latencies[i].reset();
+			hits[i].reset();
+			misses[i].reset();
+		}
+		probeLengths.reset();
+		slowOperations.reset();
+	}
+
+	@Override
+	public void clear() {
+		delegate.clear();
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+		long start = System.nanoTime();
+		List<Object> oldFields = delegate.put(key, fields);
+		record(Operation.PUT, start, key, oldFields != null);
+		return oldFields;
+	}
+
+	@Override
+	public List<Object> get(String key) {
+		long start = System.nanoTime();
+		List<Object> fields = delegate.get(key);
+		record(Operation.GET, start, key, fields != null);
+		return fields;
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+		long start = System.nanoTime();
+		List<Object> oldFields = delegate.remove(key);
+		record(Operation.REMOVE, start, key, oldFields != null);
+		return oldFields;
+	}
+
+	@Override
+	public DataTable filter(String columnName, Object value) {
+		long start = System.nanoTime();
+		DataTable filtered = delegate.filter(columnName, value);
+		record(Operation.FILTER, start, columnName, !filtered.isEmpty());
+		return filtered;
+	}
+
+	// Keep the wrapped table's fast paths; a batch is timed as one operation
+	@Override
+	public Number aggregate(Aggregate function, String columnName) {
+		return delegate.aggregate(function, columnName);
+	}
+
+	@Override
+	public void putAll(Iterable<Row> rows) {
+		long start = System.nanoTime();
+		delegate.putAll(rows);
+		record(Operation.PUT, start, null, true);
+	}
+
+	@Override
+	public Map<String, List<Object>> getAll(Collection<String> keys) {
+		long start = System.nanoTime();
+		Map<String, List<Object>> found = delegate.getAll(keys);
+		record(Operation.GET, start, null, !found.isEmpty());
+		return found;
+	}
+
+	@Override
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		long start = System.nanoTime();
+		Map<String, List<Object>> removed = delegate.removeAll(keys);
+		record(Operation.REMOVE, start, null, !removed.isEmpty());
+		return removed;
+	}
+
+	@Override
+	public MerkleTree merkleTree() {
+		return delegate.merkleTree();
+	}
+
+	@Override
+	public boolean maintainsMerkleTree() {
+		return delegate.maintainsMerkleTree();
+	}
+
+	@Override
+	public void flush() {
+		if (delegate instanceof Flushable flushable) {
+			long start = System.nanoTime();
+			try {
+				flushable.flush();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			record(Operation.FLUSH, start, null, true);
+		}
+	}
+
+	// Unregisters the metrics and closes the wrapped table if it is closeable
+	@Override
+	public void close() {
+		if (mbeanName != null) {
+			try {
+				ManagementFactory.getPlatformMBeanServer().unregisterMBean(mbeanName);
+			} catch (JMException e) {
+				throw new IllegalStateException(e);
+			}
+			mbeanName = null;
+		}
+		if (delegate instanceof AutoCloseable closeable) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Exception e) {
+				throw new IllegalStateException(e);
+			}
+		}
+	}
+
+	@Override
+	public int degree() {
+		return delegate.degree();
+	}
+
+	@Override
+	public int size() {
+		return delegate.size();
+	}
+
+	@Override
+	public int hashCode() {
+		return delegate.hashCode();
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return delegate.equals(obj);
+	}
+
+	// An iteration is timed from iterator() until hasNext() first reports the end
+	@Override
+	public Iterator<Row> iterator() {
+		long start = System.nanoTime();
+		Iterator<Row> rows = delegate.iterator();
+		return new Iterator<>() {
+			private boolean done;
+
+			@Override
+			public boolean hasNext() {
+				boolean more = rows.hasNext();
+				if (!more && !done) {
+					done = true;
+					record(Operation.ITERATE, start, null, true);
+				}
+				return more;
+			}
+
+			@Override
+			public Row next() {
+				return rows.next();
+			}
+		};
+	}
+
+	// Lazy like the wrapped table's stream; timed from stream() until it is closed
+	@Override
+	public Stream<Row> stream() {
+		long start = System.nanoTime();
+		return delegate.stream().onClose(() -> record(Operation.ITERATE, start, null, true));
+	}
+
+	@Override
+	public String name() {
+		return delegate.name();
+	}
+
+	@Override
+	public List<String> columns() {
+		return delegate.columns();
+	}
+
+	@Override
+	public int columnIndex(String columnName) {
+		return delegate.columnIndex(columnName);
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	private void record(Operation op, long start, String key, boolean hit) {
+		long nanos = System.nanoTime() - start;
+		latencies[op.ordinal()].record(nanos);
+		(hit ? hits : misses)[op.ordinal()].increment();
+
+		// Single-key operations only; after a batch the probe length is the last row's
+		if (delegate instanceof HashTable hash && op.ordinal() <= Operation.REMOVE.ordinal() && key != null) {
+			probeLengths.record(hash.lastProbeLength());
+		}
+
+		if (nanos > slowThresholdNanos) {
+			slowOperations.increment();
+			LOG.log(System.Logger.Level.WARNING, "Slow {0} on table {1}: {2} us (key {3})",
+				op.label(), name(), nanos / 1000, key);
+		}
+	}
+
+	private class Metrics implements TableMetricsMXBean {
+		@Override
+		public String getName() {
+			return name();
+		}
+
+		@Override
+		public Map<String, Long> getCounts() {
+			Map<String, Long> values = new LinkedHashMap<>();
+			for (Operation op : Operation.values())
+				values.put(op.label(), latencies[op.ordinal()].count());
+			return values;
+		}
+
+		@Override
+		public Map<String, Long> getHits() {
+			Map<String, Long> values = new LinkedHashMap<>();
+			for (Operation op : Operation.values())
+				values.put(op.label(), hits[op.ordinal()].sum());
+			return values;
+		}
+
+		@Override
+		public Map<String, Long> getMisses() {
+			Map<String, Long> values = new LinkedHashMap<>();
+			for (Operation op : Operation.values())
+				values.put(op.label(), misses[op.ordinal()].sum());
+			return values;
+		}
+
+		@Override
+		public Map<String, Double> getMeanMicros() {
+			return perOperation(s -> s.meanNanos() / 1000);
+		}
+
+		@Override
+		public Map<String, Double> getP99Micros() {
+			return perOperation(s -> s.p99Nanos() / 1000.0);
+		}
+
+		@Override
+		public Map<String, Double> getMaxMicros() {
+			return perOperation(s -> s.maxNanos() / 1000.0);
+		}
+
+		@Override
+		public long getBytesRead() {
+			return snapshot().bytesRead();
+		}
+
+		@Override
+		public long getBytesWritten() {
+			return snapshot().bytesWritten();
+		}
+
+		@Override
+		public double getMeanProbeLength() {
+			return probeLengths.mean();
+		}
+
+		@Override
+		public long getMaxProbeLength() {
+			return probeLengths.max();
+		}
+
+		@Override
+		public long getRehashes() {
+			return snapshot().rehashes();
+		}
+
+		@Override
+		public int getRetainedSnapshots() {
+			return snapshot().retainedSnapshots();
+		}
+
+		@Override
+		public long getSlowOperations() {
+			return slowOperations.sum();
+		}
+
+		@Override
+		public void reset() {
+			InstrumentedTable.this.reset();
+		}
+
+		private Map<String, Double> perOperation(ToDoubleFunction<OperationStats> metric) {
+			Map<String, Double> values = new LinkedHashMap<>();
+			snapshot().operations().forEach((op, stats) -> values.put(op.label(), metric.applyAsDouble(stats)));
+			return values;
+		}
+	}
+}
@@ -0,0 +1,55 @@
+package model;
+
+// Decode-time interning of field values: file tables pass every string they decode through
+// intern(), so a value repeated across rows, like a brand or genre, is held as one instance
+// however many rows are read. The cache is direct mapped and fixed in size, so a value
+// only displaces the one in its slot and memory stays bounded; unlike String.intern() there
+// is no global table to fill up. Strings are immutable, so racing threads at worst replace
+// a slot or keep their own copy.
+public final class Interner {
+	private static final Interner SHARED = new Interner(1 << 14);
+
+	// Longer values are rarely repeated and are returned as they are
+	private static final int MAX_LENGTH = 64;
+
+	private final String[] slots;
+	private final int mask;
+
+	// Capacity is rounded down to a power of two
+	public Interner(int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be positive.");
+		}
+		this.slots = new String[Integer.highestOneBit(capacity)];
+		this.mask = slots.length - 1;
+	}
+
+	// Cache used by the file tables
+	public static Interner shared() {
+		return SHARED;
+	}
+
+	public String intern(String value) {
+		if (value == null || value.length() > MAX_LENGTH) {
+			return value;
+		}
+		int slot = mix(value.hashCode()) & mask;
+		String cached = slots[slot];
+		if (value.equals(cached)) {
+			return cached;
+		}
+		slots[slot] = value;
+		return value;
+	}
+
+	// Interns strings and returns other values unchanged
+	public Object internField(Object value) {
+		return value instanceof String string ? intern(string) : value;
+	}
+
+	// String hashes of similar values differ mostly in the low bits; spread them out
+	private static int mix(int hash) {
+		hash *= 0x9E3779B9;
+		return hash ^ hash >>> 16;
+	}
+}
@@ -5,15 +5,28 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 
+import model.Accumulator;
+import model.Aggregate;
 import model.FileTable;
+import model.Interner;
 import model.Row;
+import model.Schema;
 import model.Table;
 
 public class JSONTable implements FileTable {
@@ -22,6 +35,9 @@ public class JSONTable implements FileTable {
 
 	private static final ObjectMapper helper = new ObjectMapper();
 	private final ObjectNode tree;
+	private long bytesRead;
+	private long bytesWritten;
+	private Schema schema; // metadata columns, read once
 
 	public JSONTable(String name, List<String> columns) {
 		try {
@@ -61,6 +77,7 @@ public class JSONTable implements FileTable {
 				throw new IllegalArgumentException("Missing table: " + name);
 
 			tree = (ObjectNode) helper.readTree(jsonFile.toFile());
+			bytesRead += Files.size(jsonFile);
 		}
 		// above code has been provided
 		catch (IOException e) {
@@ -78,6 +95,7 @@ public class JSONTable implements FileTable {
 	public void flush() {
 		try {
 			helper.writerWithDefaultPrettyPrinter().writeValue(jsonFile.toFile(), tree);
+			bytesWritten += Files.size(jsonFile);
 		}
 		catch (IOException e) {
 			throw new IllegalStateException(e);
@@ -170,10 +188,128 @@ public class JSONTable implements FileTable {
 	    }
 	    return null; //miss condition
 	}
+	
+	// Checks and converts the whole batch first, so a bad row leaves the tree untouched;
+	// then indexes the rows once, applies the batch to the tree and flushes once
+	@Override
+	public void putAll(Iterable<Row> batch) {
+		int degree = degree();
+		
+		// key -> fields; a key repeated in the batch keeps its last fields
+		Map<String, JsonNode> converted = new LinkedHashMap<>();
+		for (Row row : batch) {
+			if (row.key() == null || row.key().isEmpty()) {
+				throw new IllegalArgumentException("Key cannot be null or empty");
+			}
+			if ((row.fields().size() + 1) != degree) {
+		        throw new IllegalArgumentException("Amount of fields do not match the table's degree");
+		    }
+			converted.put(row.key(), helper.valueToTree(row.fields()));
+		}
+		if (converted.isEmpty()) {
+			return;
+		}
+		
+		var rows = (ArrayNode) tree.path("rows");
+		Map<String, ObjectNode> index = new HashMap<>();
+		for (var jsonRow : rows) {
+			index.put(jsonRow.path("key").asText(), (ObjectNode) jsonRow);
+		}
+		
+		for (var entry : converted.entrySet()) {
+			var existing = index.get(entry.getKey());
+			if (existing != null) { // hit
+				existing.set("fields", entry.getValue());
+			} else { // miss
+				var newRow = helper.createObjectNode();
+				newRow.put("key", entry.getKey());
+			    newRow.set("fields", entry.getValue());
+			    rows.add(newRow);
+			}
+		}
+		
+		flush();
+	}
+	
+	// One pass over the rows for the whole batch
+	@Override
+	public Map<String, List<Object>> getAll(Collection<String> keys) {
+		Set<String> wanted = new HashSet<>(keys);
+		Map<String, List<Object>> found = new HashMap<>();
+		
+		for (var jsonRow : tree.path("rows")) {
+			String key = jsonRow.path("key").asText();
+			if (wanted.contains(key)) {
+				found.put(key, convertFields((ArrayNode) jsonRow.path("fields")));
+			}
+		}
 		
+		// Report hits in the order the keys were given
+		Map<String, List<Object>> ordered = new LinkedHashMap<>();
+		for (String key : keys) {
+			if (found.containsKey(key)) {
+				ordered.put(key, found.get(key));
+			}
+		}
+		return ordered;
+	}
+	
+	// One pass over the rows and a single flush for the whole batch
+	@Override
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		Set<String> wanted = new HashSet<>(keys);
+		Map<String, List<Object>> removed = new LinkedHashMap<>();
+		
+		var rows = (ArrayNode) tree.path("rows");
+		for (int i = rows.size() - 1; i >= 0; i--) {
+			var jsonRow = rows.get(i);
+			String key = jsonRow.path("key").asText();
+			if (wanted.contains(key)) {
+				removed.put(key, convertFields((ArrayNode) jsonRow.path("fields")));
+				rows.remove(i);
+			}
+		}
+		
+		if (!removed.isEmpty()) {
+			flush();
+		}
+		return removed;
+	}
+		
+	// Appends a node per row without scanning for hits and flushes once; the rows are
+	// held in the tree like every other JSONTable
+	@Override
+	public void load(Iterator<Row> rows) {
+		int degree = degree();
+		var jsonRows = helper.createArrayNode();
+		while (rows.hasNext()) {
+			Row row = rows.next();
+			if (row.key() == null || row.key().isEmpty()) {
+				throw new IllegalArgumentException("Key cannot be null or empty");
+			}
+			if ((row.fields().size() + 1) != degree) {
+		        throw new IllegalArgumentException("Amount of fields do not match the table's degree");
+		    }
+			var newRow = helper.createObjectNode();
+			newRow.put("key", row.key());
+			newRow.set("fields", helper.valueToTree(row.fields()));
+			jsonRows.add(newRow);
+		}
+		tree.set("rows", jsonRows);
+		flush();
+	}
+	
+	// Converts each row node only when the stream reaches it instead of building every Row
+	@Override
+	public Stream<Row> stream() {
+		var rows = (ArrayNode) tree.path("rows");
+		return StreamSupport.stream(rows.spliterator(), false)
+			.map(jsonRow -> new Row(jsonRow.path("key").asText(), convertFields((ArrayNode) jsonRow.path("fields"))));
+	}
+	
 	@Override
 	public int degree() {
-		return columns().size();
+		return schema().degree();
 	}
 
 	@Override
@@ -244,13 +380,26 @@ public class JSONTable implements FileTable {
 
 	@Override
 	public List<String> columns() {
-		var columnsNode = tree.path("metadata").path("columns");
+		return schema().columns();
+	}
 	
-		List<String> columnNames = new ArrayList<>();
-	    for (int i = 0; i < columnsNode.size(); i++) {
-	    	columnNames.add(columnsNode.get(i).asText());
-	    }
-	    return columnNames;
+	@Override
+	public int columnIndex(String columnName) {
+		return schema().indexOf(columnName);
+	}
+	
+	// Helper method to build the schema from the tree once, the columns never change
+	private Schema schema() {
+		if (schema == null) {
+			var columnsNode = tree.path("metadata").path("columns");
+		
+			List<String> columnNames = new ArrayList<>();
+		    for (int i = 0; i < columnsNode.size(); i++) {
+		    	columnNames.add(columnsNode.get(i).asText());
+		    }
+		    schema = new Schema(columnNames);
+		}
+		return schema;
 	}
 
 	@Override
@@ -258,24 +407,61 @@ public class JSONTable implements FileTable {
 		return toPrettyString();
 	}
 	
+	@Override
+	public Path path() {
+		return jsonFile;
+	}
+	
+	@Override
+	public long bytesRead() {
+		return bytesRead;
+	}
+	
+	@Override
+	public long bytesWritten() {
+		return bytesWritten;
+	}
+	
+	// Aggregates over the tree, converting only the aggregated node of each row
+	@Override
+	public Number aggregate(Aggregate function, String columnName) {
+		int columnIndex = columnIndex(columnName);
+		if (columnIndex == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		
+		var rows = (ArrayNode) tree.path("rows");
+		return StreamSupport.stream(rows.spliterator(), true)
+			.collect(
+				() -> new Accumulator(function),
+				(partial, jsonRow) -> partial.add(columnIndex == 0
+					? jsonRow.path("key").asText()
+					: convertField(jsonRow.path("fields").path(columnIndex - 1))),
+				Accumulator::merge)
+			.result();
+	}
+	
 	private List<Object> convertFields(ArrayNode fieldsNode) {
 		List<Object> fields = new ArrayList<>();
 	    for (int j = 0; j < fieldsNode.size(); j++) {
-	        var fieldNode = fieldsNode.get(j);
-
-	        if (fieldNode.isBoolean()) {
-	            fields.add(fieldNode.asBoolean());
-	        } else if (fieldNode.isInt()) {
-	            fields.add(fieldNode.asInt());
-	        } else if (fieldNode.isDouble()) {
-	            fields.add(fieldNode.asDouble());
-	        } else if (fieldNode.isTextual()) {
-	            fields.add(fieldNode.asText());
-	        } else {
-	            // Handle null or unexpected types
-	            fields.add(null);
-	        }
+	        fields.add(convertField(fieldsNode.get(j)));
 	    }
 	    return fields;
 	}
+	
+	private Object convertField(JsonNode fieldNode) {
+        if (fieldNode.isBoolean()) {
+            return fieldNode.asBoolean();
+        } else if (fieldNode.isInt()) {
+            return fieldNode.asInt();
+        } else if (fieldNode.isDouble()) {
+            return fieldNode.asDouble();
+        } else if (fieldNode.isTextual()) {
+            // Repeated values share one instance
+            return Interner.shared().intern(fieldNode.asText());
+        } else {
+            // Handle null or unexpected types
+            return null;
+        }
+	}
 }
\ No newline at end of file
@@ -0,0 +1,493 @@
+package model;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.ref.Cleaner;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import tables.SortedTable;
+
+// Equi-join of two tables on one column each. Joined rows are produced lazily as the
+// iterator advances: they keep the left key, followed by the left fields, then the right
+// key and fields. Rows whose join value is null never match.
+public class Join implements Iterable<Row> {
+
+	// Build sides larger than this are partitioned to temporary files before joining
+	private static final int DEFAULT_MAX_BUILD_ROWS = 1_000_000;
+	private static final int SPILL_PARTITIONS = 16;
+
+	// Hash bits run out after this many splits; deeper partitions share one join value
+	// hash and are joined in memory whatever their size
+	private static final int MAX_SPILL_DEPTH = 7;
+
+	private static final Cleaner CLEANER = Cleaner.create();
+
+	private final Table left;
+	private final Table right;
+	private final int leftIndex;
+	private final int rightIndex;
+	private final boolean merge;
+	private int maxBuildRows = DEFAULT_MAX_BUILD_ROWS;
+
+	private Join(Table left, String leftColumn, Table right, String rightColumn, boolean merge) {
+		this.left = left;
+		this.right = right;
+		this.leftIndex = left.columns().indexOf(leftColumn);
+		this.rightIndex = right.columns().indexOf(rightColumn);
+		if (leftIndex == -1 || rightIndex == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		this.merge = merge;
+	}
+
+	// Merge join when both sides already iterate in join-column order, hash join otherwise
+	public static Join of(Table left, String leftColumn, Table right, String rightColumn) {
+		boolean sorted = left instanceof SortedTable && right instanceof SortedTable
+			&& left.columns().indexOf(leftColumn) == 0 && right.columns().indexOf(rightColumn) == 0;
+		return new Join(left, leftColumn, right, rightColumn, sorted);
+	}
+
+	public static Join hash(Table left, String leftColumn, Table right, String rightColumn) {
+		return new Join(left, leftColumn, right, rightColumn, false);
+	}
+
+	// Both tables must iterate in ascending order of their join column
+	public static Join merge(Table left, String leftColumn, Table right, String rightColumn) {
+		return new Join(left, leftColumn, right, rightColumn, true);
+	}
+
+	// Sets the build-side row count above which a hash join spills to disk
+	public Join spillAbove(int maxBuildRows) {
+		this.maxBuildRows = maxBuildRows;
+		return this;
+	}
+
+	public boolean isMerge() {
+		return merge;
+	}
+
+	// Left columns followed by the right columns, qualified with the right table name
+	public List<String> columns() {
+		List<String> columns = new ArrayList<>(left.columns());
+		for (String column : right.columns())
+			columns.add(right.name() + "." + column);
+		return columns;
+	}
+
+	@Override
+	public Iterator<Row> iterator() {
+		return merge ? new MergeIterator() : hashJoin();
+	}
+
+	// Closing the stream deletes the spill files of an unfinished grace hash join
+	public Stream<Row> stream() {
+		Iterator<Row> rows = iterator();
+		Stream<Row> stream = rowsOf(rows);
+		return rows instanceof GraceJoin grace ? stream.onClose(grace::close) : stream;
+	}
+
+	// Build on the smaller table, probe with the other
+	private Iterator<Row> hashJoin() {
+		boolean buildLeft = left.size() < right.size();
+		Table build = buildLeft ? left : right;
+		Table probe = buildLeft ? right : left;
+		int buildIndex = buildLeft ? leftIndex : rightIndex;
+		int probeIndex = buildLeft ? rightIndex : leftIndex;
+
+		if (build.size() <= maxBuildRows) {
+			Map<Object, List<Row>> buckets = buildBuckets(build.iterator(), buildIndex);
+			return probe(rowsOf(probe.iterator()), probeIndex, buckets, buildLeft).iterator();
+		}
+
+		return new GraceJoin(build, probe, buildIndex, probeIndex, buildLeft);
+	}
+
+	private static Map<Object, List<Row>> buildBuckets(Iterator<Row> rows, int index) {
+		Map<Object, List<Row>> buckets = new HashMap<>();
+		while (rows.hasNext()) {
+			Row row = rows.next();
+			Object value = valueOf(row, index);
+			if (value != null) {
+				buckets.computeIfAbsent(value, v -> new ArrayList<>(1)).add(row);
+			}
+		}
+		return buckets;
+	}
+
+	private Stream<Row> probe(Stream<Row> rows, int probeIndex, Map<Object, List<Row>> buckets, boolean buildLeft) {
+		return rows.flatMap(probeRow -> {
+			Object value = valueOf(probeRow, probeIndex);
+			List<Row> matches = value == null ? null : buckets.get(value);
+			if (matches == null) {
+				return Stream.empty();
+			}
+			return matches.stream().map(buildRow -> buildLeft ? combine(buildRow, probeRow) : combine(probeRow, buildRow));
+		});
+	}
+
+	private static Object valueOf(Row row, int index) {
+		return index == 0 ? row.key() : row.fields().get(index - 1);
+	}
+
+	private static Row combine(Row leftRow, Row rightRow) {
+		List<Object> fields = new ArrayList<>(leftRow.fields().size() + 1 + rightRow.fields().size());
+		fields.addAll(leftRow.fields());
+		fields.add(rightRow.key());
+		fields.addAll(rightRow.fields());
+		return new Row(leftRow.key(), fields);
+	}
+
+	private static Stream<Row> rowsOf(Iterator<Row> iterator) {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false);
+	}
+
+	// Grace hash join: both sides are partitioned to temporary files by join value, then
+	// joined partition by partition, so only one build partition is in memory at a time. A
+	// build partition still larger than the limit is partitioned again on further hash bits.
+	// The spill directory is deleted once the rows run out, on close(), or, for an iterator
+	// that is abandoned, when it is garbage collected.
+	private final class GraceJoin implements Iterator<Row>, AutoCloseable {
+		private record Partition(Path build, Path probe, int buildRows, int depth) {}
+
+		private final Path spillDir;
+		private final Cleaner.Cleanable cleanup;
+		private final int buildIndex;
+		private final int probeIndex;
+		private final boolean buildLeft;
+		private final Deque<Partition> partitions = new ArrayDeque<>();
+		private Iterator<Row> current = Collections.emptyIterator();
+		private SpillReader probeReader;
+		private int files;
+
+		GraceJoin(Table build, Table probe, int buildIndex, int probeIndex, boolean buildLeft) {
+			this.buildIndex = buildIndex;
+			this.probeIndex = probeIndex;
+			this.buildLeft = buildLeft;
+			Path dir;
+			try {
+				dir = Files.createTempDirectory("join");
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			spillDir = dir;
+			// The action must not hold on to the iterator, or it would never become unreachable
+			cleanup = CLEANER.register(this, () -> deleteDirectory(dir));
+			try {
+				partitions.addAll(split(build.iterator(), probe.iterator(), 0));
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (!current.hasNext()) {
+				closeProbe();
+				Partition partition = partitions.poll();
+				if (partition == null) {
+					close();
+					return false;
+				}
+				if (partition.buildRows() > maxBuildRows && partition.depth() < MAX_SPILL_DEPTH) {
+					// Split again; the parent files are deleted as they are read
+					List<Partition> parts = split(new SpillReader(partition.build()), new SpillReader(partition.probe()),
+						partition.depth() + 1);
+					for (int i = parts.size() - 1; i >= 0; i--)
+						partitions.push(parts.get(i));
+					continue;
+				}
+				Map<Object, List<Row>> buckets = buildBuckets(new SpillReader(partition.build()), buildIndex);
+				probeReader = new SpillReader(partition.probe());
+				current = probe(rowsOf(probeReader), probeIndex, buckets, buildLeft).iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more elements");
+			}
+			return current.next();
+		}
+
+		@Override
+		public void close() {
+			closeProbe();
+			current = Collections.emptyIterator();
+			partitions.clear();
+			cleanup.clean();
+		}
+
+		private void closeProbe() {
+			if (probeReader != null) {
+				probeReader.close();
+				probeReader = null;
+			}
+		}
+
+		// Partitions both sides on the hash bits of the given depth
+		private List<Partition> split(Iterator<Row> build, Iterator<Row> probe, int depth) {
+			List<Path> buildParts = newParts();
+			List<Path> probeParts = newParts();
+			int[] buildRows = spill(build, buildIndex, buildParts, depth);
+			spill(probe, probeIndex, probeParts, depth);
+			List<Partition> parts = new ArrayList<>(SPILL_PARTITIONS);
+			for (int p = 0; p < SPILL_PARTITIONS; p++)
+				parts.add(new Partition(buildParts.get(p), probeParts.get(p), buildRows[p], depth));
+			return parts;
+		}
+
+		private List<Path> newParts() {
+			List<Path> parts = new ArrayList<>(SPILL_PARTITIONS);
+			for (int p = 0; p < SPILL_PARTITIONS; p++)
+				parts.add(spillDir.resolve("part" + files++));
+			return parts;
+		}
+	}
+
+	// Rows per partition written; rows with a null join value are dropped since they never match
+	private static int[] spill(Iterator<Row> rows, int index, List<Path> parts, int depth) {
+		int[] counts = new int[parts.size()];
+		List<DataOutputStream> outputs = new ArrayList<>();
+		try {
+			try {
+				for (Path part : parts)
+					outputs.add(new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(part))));
+				while (rows.hasNext()) {
+					Row row = rows.next();
+					Object value = valueOf(row, index);
+					if (value != null) {
+						int partition = partitionOf(value, depth);
+						writeRow(outputs.get(partition), row);
+						counts[partition]++;
+					}
+				}
+			} finally {
+				for (DataOutputStream output : outputs)
+					output.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return counts;
+	}
+
+	// Each depth uses the next four bits of the spread hash, so a partition split again is
+	// divided on bits its rows do not share yet
+	private static int partitionOf(Object value, int depth) {
+		int hash = value.hashCode() * 0x9E3779B9;
+		return (hash >>> (28 - 4 * depth)) & (SPILL_PARTITIONS - 1);
+	}
+
+	private static void deleteDirectory(Path dir) {
+		try (Stream<Path> paths = Files.walk(dir)) {
+			paths.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+		} catch (IOException e) {
+			// Already gone
+		}
+	}
+
+	// Spill rows are type tagged like snapshots; strings are length-prefixed UTF-8, so
+	// they have no length limit
+	private static void writeRow(DataOutputStream dos, Row row) throws IOException {
+		writeString(dos, row.key());
+		dos.writeInt(row.fields().size());
+		for (Object field : row.fields()) {
+			if (field instanceof String string) {
+				dos.writeByte(Snapshot.STRING);
+				writeString(dos, string);
+			} else if (field instanceof Integer value) {
+				dos.writeByte(Snapshot.INTEGER);
+				dos.writeInt(value);
+			} else if (field instanceof Double value) {
+				dos.writeByte(Snapshot.DOUBLE);
+				dos.writeDouble(value);
+			} else if (field instanceof Boolean value) {
+				dos.writeByte(Snapshot.BOOLEAN);
+				dos.writeBoolean(value);
+			} else if (field == null) {
+				dos.writeByte(Snapshot.NULL);
+			} else {
+				throw new IllegalArgumentException("Cannot spill field of type " + field.getClass().getName());
+			}
+		}
+	}
+
+	private static void writeString(DataOutputStream dos, String string) throws IOException {
+		byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+		dos.writeInt(bytes.length);
+		dos.write(bytes);
+	}
+
+	// Reads one spill partition back, deleting its file once exhausted or closed
+	private static class SpillReader implements Iterator<Row> {
+		private final Path part;
+		private final DataInputStream dis;
+		private Row next;
+
+		SpillReader(Path part) {
+			try {
+				this.part = part;
+				this.dis = new DataInputStream(new BufferedInputStream(Files.newInputStream(part)));
+				this.next = read();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return next != null;
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more elements");
+			}
+			Row current = next;
+			try {
+				next = read();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return current;
+		}
+
+		void close() {
+			next = null;
+			try {
+				dis.close();
+				Files.deleteIfExists(part);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private Row read() throws IOException {
+			String key;
+			try {
+				key = readString(dis);
+			} catch (EOFException e) {
+				close();
+				return null;
+			}
+			int numFields = dis.readInt();
+			List<Object> fields = new ArrayList<>(numFields);
+			for (int i = 0; i < numFields; i++) {
+				byte type = dis.readByte();
+				switch (type) {
+					case Snapshot.STRING -> fields.add(readString(dis));
+					case Snapshot.INTEGER -> fields.add(dis.readInt());
+					case Snapshot.DOUBLE -> fields.add(dis.readDouble());
+					case Snapshot.BOOLEAN -> fields.add(dis.readBoolean());
+					case Snapshot.NULL -> fields.add(null);
+					default -> throw new IllegalStateException("Unknown field type: " + type);
+				}
+			}
+			return new Row(key, fields);
+		}
+
+		private static String readString(DataInputStream dis) throws IOException {
+			byte[] bytes = new byte[dis.readInt()];
+			dis.readFully(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+	}
+
+	// Walks both sorted inputs once, buffering only the current run of equal right rows
+	private class MergeIterator implements Iterator<Row> {
+		private final Iterator<Row> leftRows = left.iterator();
+		private final Iterator<Row> rightRows = right.iterator();
+		private final Deque<Row> pending = new ArrayDeque<>();
+		private List<Row> run = Collections.emptyList();
+		private Object runValue;
+		private Row leftRow = nextLeft();
+		private Row rightRow = nextRight();
+
+		@Override
+		public boolean hasNext() {
+			while (pending.isEmpty() && leftRow != null) {
+				Object value = valueOf(leftRow, leftIndex);
+
+				// Left rows with the same value reuse the buffered run
+				if (runValue != null && compare(value, runValue) == 0) {
+					for (Row rightMatch : run)
+						pending.add(combine(leftRow, rightMatch));
+					leftRow = nextLeft();
+					continue;
+				}
+
+				while (rightRow != null && compare(valueOf(rightRow, rightIndex), value) < 0) {
+					rightRow = nextRight();
+				}
+				if (rightRow == null || compare(valueOf(rightRow, rightIndex), value) > 0) {
+					leftRow = nextLeft();
+					continue;
+				}
+
+				// Collect the run of right rows equal to the left value
+				run = new ArrayList<>();
+				runValue = value;
+				while (rightRow != null && compare(valueOf(rightRow, rightIndex), value) == 0) {
+					run.add(rightRow);
+					rightRow = nextRight();
+				}
+			}
+			return !pending.isEmpty();
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more elements");
+			}
+			return pending.poll();
+		}
+
+		private Row nextLeft() {
+			return nextNonNull(leftRows, leftIndex);
+		}
+
+		private Row nextRight() {
+			return nextNonNull(rightRows, rightIndex);
+		}
+
+		private Row nextNonNull(Iterator<Row> rows, int index) {
+			while (rows.hasNext()) {
+				Row row = rows.next();
+				if (valueOf(row, index) != null) {
+					return row;
+				}
+			}
+			return null;
+		}
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private int compare(Object a, Object b) {
+			return ((Comparable) a).compareTo(b);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package model;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+// Log-linear histogram of nanosecond latencies in the style of HdrHistogram: values below 64
+// are counted exactly, larger values in 32 sub-buckets per power of two (about 3% precision).
+// Recording is lock-free and allocation-free, so it can sit on every table operation.
+public class LatencyHistogram {
+	private static final int SUB_BITS = 5;
+	private static final int SUB_COUNT = 1 << SUB_BITS; // 32
+	private static final int LINEAR = 2 * SUB_COUNT; // 64
+	private static final int BUCKETS = LINEAR + (63 - (SUB_BITS + 1)) * SUB_COUNT;
+
+	private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+	public void record(long value) {
+		value = Math.max(0, value);
+		counts.incrementAndGet(indexOf(value));
+		count.increment();
+		total.add(value);
+		max.accumulate(value);
+	}
+
+	public long count() {
+		return count.sum();
+	}
+
+	public long max() {
+		return max.get();
+	}
+
+	public double mean() {
+		long n = count.sum();
+		return n == 0 ? 0 : (double) total.sum() / n;
+	}
+
+	// Highest value equivalent to the bucket holding the given percentile (0-100)
+	public long percentile(double percentile) {
+		long n = count.sum();
+		if (n == 0) {
+			return 0;
+		}
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts.get(i);
+			if (seen >= rank) {
+				return Math.min(upperBound(i), max());
+			}
+		}
+		return max();
+	}
+
+	public void reset() {
+		for (int i = 0; i < BUCKETS; i++) {
+			counts.set(i, 0);
+		}
+		count.reset();
+		total.reset();
+		max.reset();
+	}
+
+	private static int indexOf(long value) {
+		if (value < LINEAR) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value); // at least SUB_BITS + 1
+		int shift = exponent - SUB_BITS;
+		int sub = (int) (value >>> shift) - SUB_COUNT; // 0..SUB_COUNT-1
+		return LINEAR + (exponent - (SUB_BITS + 1)) * SUB_COUNT + sub;
+	}
+
+	private static long upperBound(int index) {
+		if (index < LINEAR) {
+			return index;
+		}
+		int offset = index - LINEAR;
+		int exponent = offset / SUB_COUNT + SUB_BITS + 1;
+		long sub = offset % SUB_COUNT + SUB_COUNT;
+		int shift = exponent - SUB_BITS;
+		return ((sub + 1) << shift) - 1;
+	}
+}
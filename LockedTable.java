@@ -0,0 +1,326 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+// Thread-safe decorator for a file table. Reads share a lock and run in parallel; writes,
+// and lookups on tables whose reads rewrite the file (CSVTable), hold it exclusively. All
+// LockedTables in a JVM over the same path share one lock, and each lock also takes a
+// FileChannel lock on "<path>.lock", shared for reads and exclusive for writes, so other
+// processes using the same db/tables path are kept out too.
+//
+// The lock is a StampedLock, so a stream() may be closed on a different thread from the one
+// that opened it, but it is not reentrant: do not call a write method while holding a
+// stream open on the same thread. JSONTable keeps its rows in memory, so the file lock
+// orders its writes but does not make it see another process's changes.
+public class LockedTable implements FileTable {
+
+	private static final Map<Path, PathLock> LOCKS = new ConcurrentHashMap<>();
+
+	private final FileTable delegate;
+	private final PathLock lock;
+
+	public LockedTable(FileTable delegate) {
+		this.delegate = delegate;
+		this.lock = LOCKS.computeIfAbsent(delegate.path().toAbsolutePath().normalize(), PathLock::new);
+	}
+
+	public FileTable delegate() {
+		return delegate;
+	}
+
+	@Override
+	public void clear() {
+		write(delegate::clear);
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+		return write(() -> delegate.put(key, fields));
+	}
+
+	@Override
+	public List<Object> get(String key) {
+		return lookup(() -> delegate.get(key));
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+		return write(() -> delegate.remove(key));
+	}
+
+	@Override
+	public void putAll(Iterable<Row> rows) {
+		write(() -> delegate.putAll(rows));
+	}
+
+	@Override
+	public Map<String, List<Object>> getAndPutAll(Iterable<Row> rows) {
+		return write(() -> delegate.getAndPutAll(rows));
+	}
+
+	@Override
+	public Map<String, List<Object>> getAll(Collection<String> keys) {
+		return lookup(() -> delegate.getAll(keys));
+	}
+
+	@Override
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		return write(() -> delegate.removeAll(keys));
+	}
+
+	@Override
+	public void load(Iterator<Row> rows) {
+		write(() -> delegate.load(rows));
+	}
+
+	@Override
+	public DataTable filter(String columnName, Object value) {
+		return read(() -> delegate.filter(columnName, value));
+	}
+
+	@Override
+	public Number aggregate(Aggregate function, String columnName) {
+		return read(() -> delegate.aggregate(function, columnName));
+	}
+
+	@Override
+	public int degree() {
+		return delegate.degree();
+	}
+
+	@Override
+	public int size() {
+		return read(delegate::size);
+	}
+
+	@Override
+	public int hashCode() {
+		return read(delegate::hashCode);
+	}
+
+	// Under the write lock, since the first call may store the tree the table keeps
+	@Override
+	public MerkleTree merkleTree() {
+		return write(delegate::merkleTree);
+	}
+
+	@Override
+	public boolean maintainsMerkleTree() {
+		return read(delegate::maintainsMerkleTree);
+	}
+
+	// Fingerprints compared as the tables do. The other table's is read outside this lock,
+	// which is not reentrant: obj may be a LockedTable over the same path.
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof Table)) {
+			return false;
+		}
+		int other = obj.hashCode();
+		return hashCode() == other;
+	}
+
+	// Copies every row under the lock, so the iterator never sees a half-written file; that
+	// holds the whole table in memory. stream() reads under the lock without the copy.
+	@Override
+	public Iterator<Row> iterator() {
+		return read(() -> {
+			List<Row> rows = new ArrayList<>();
+			delegate.forEach(rows::add);
+			return rows;
+		}).iterator();
+	}
+
+	// Holds the shared lock until the stream is closed, so close it when done
+	@Override
+	public Stream<Row> stream() {
+		long stamp = lock.lockRead();
+		try {
+			return delegate.stream().onClose(() -> lock.unlockRead(stamp));
+		} catch (RuntimeException e) {
+			lock.unlockRead(stamp);
+			throw e;
+		}
+	}
+
+	@Override
+	public String name() {
+		return delegate.name();
+	}
+
+	@Override
+	public List<String> columns() {
+		return delegate.columns();
+	}
+
+	@Override
+	public int columnIndex(String columnName) {
+		return delegate.columnIndex(columnName);
+	}
+
+	@Override
+	public Path path() {
+		return delegate.path();
+	}
+
+	@Override
+	public boolean mutatesOnRead() {
+		return delegate.mutatesOnRead();
+	}
+
+	@Override
+	public void flush() {
+		write(delegate::flush);
+	}
+
+	@Override
+	public void close() {
+		write(delegate::close);
+	}
+
+	@Override
+	public long bytesRead() {
+		return delegate.bytesRead();
+	}
+
+	@Override
+	public long bytesWritten() {
+		return delegate.bytesWritten();
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	private <T> T lookup(Supplier<T> action) {
+		return delegate.mutatesOnRead() ? write(action) : read(action);
+	}
+
+	private <T> T read(Supplier<T> action) {
+		long stamp = lock.lockRead();
+		try {
+			return action.get();
+		} finally {
+			lock.unlockRead(stamp);
+		}
+	}
+
+	private <T> T write(Supplier<T> action) {
+		long stamp = lock.lockWrite();
+		try {
+			return action.get();
+		} finally {
+			lock.unlockWrite(stamp);
+		}
+	}
+
+	private void write(Runnable action) {
+		write(() -> {
+			action.run();
+			return null;
+		});
+	}
+
+	// In-process StampedLock plus the matching lock on the path's lock file. Readers share
+	// one FileLock, taken by the first reader in and released by the last one out.
+	private static final class PathLock {
+		private final StampedLock lock = new StampedLock();
+		private final Path lockFile;
+		private FileChannel channel;
+		private FileLock sharedLock;
+		private FileLock exclusiveLock;
+		private int readers;
+
+		PathLock(Path path) {
+			this.lockFile = path.resolveSibling(path.getFileName() + ".lock");
+		}
+
+		long lockRead() {
+			long stamp = lock.readLock();
+			try {
+				synchronized (this) {
+					if (readers == 0) {
+						sharedLock = channel().lock(0, Long.MAX_VALUE, true);
+					}
+					readers++;
+				}
+				return stamp;
+			} catch (IOException e) {
+				lock.unlockRead(stamp);
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void unlockRead(long stamp) {
+			try {
+				synchronized (this) {
+					if (--readers == 0) {
+						release(sharedLock);
+						sharedLock = null;
+					}
+				}
+			} finally {
+				lock.unlockRead(stamp);
+			}
+		}
+
+		long lockWrite() {
+			long stamp = lock.writeLock();
+			try {
+				synchronized (this) {
+					// No readers hold the file lock while the write stamp is held
+					exclusiveLock = channel().lock();
+				}
+				return stamp;
+			} catch (IOException e) {
+				lock.unlockWrite(stamp);
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		void unlockWrite(long stamp) {
+			try {
+				synchronized (this) {
+					release(exclusiveLock);
+					exclusiveLock = null;
+				}
+			} finally {
+				lock.unlockWrite(stamp);
+			}
+		}
+
+		private FileChannel channel() throws IOException {
+			if (channel == null) {
+				channel = FileChannel.open(lockFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+					StandardOpenOption.WRITE);
+			}
+			return channel;
+		}
+
+		private static void release(FileLock fileLock) {
+			try {
+				fileLock.release();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+}
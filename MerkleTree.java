@@ -0,0 +1,189 @@
+package model;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.List;
+
+// Hierarchical fingerprint of a table. Keys are spread over 2^depth buckets by the top bits
+// of a 64-bit key hash; each bucket holds the sum of 64-bit digests of its rows, so, like
+// the table fingerprint, it does not depend on iteration order and can be kept up to date
+// row by row with add and remove. Buckets are the leaves of a binary hash tree, so two
+// trees are compared from the root down and only subtrees that differ are opened: finding
+// d differing buckets costs O(d log n) comparisons instead of a scan of both tables.
+public final class MerkleTree {
+	public static final int DEFAULT_DEPTH = 12;
+
+	private final int depth;
+	// Heap layout: node i has children 2i and 2i+1, leaves are nodes [leaves, 2 * leaves)
+	private final long[] nodes;
+	private final int leaves;
+	private boolean dirty;
+
+	public MerkleTree(int depth) {
+		if (depth < 1 || depth > 24) {
+			throw new IllegalArgumentException("Depth must be between 1 and 24.");
+		}
+		this.depth = depth;
+		this.leaves = 1 << depth;
+		this.nodes = new long[2 * leaves];
+	}
+
+	public static MerkleTree of(Table table) {
+		return of(table, DEFAULT_DEPTH);
+	}
+
+	public static MerkleTree of(Table table, int depth) {
+		MerkleTree tree = new MerkleTree(depth);
+		for (Row row : table)
+			tree.add(row.key(), row.fields());
+		return tree;
+	}
+
+	public int depth() {
+		return depth;
+	}
+
+	// Adds the other tree's rows into this one, e.g. to combine the trees of disjoint shards
+	public MerkleTree merge(MerkleTree other) {
+		if (other.depth != depth) {
+			throw new IllegalArgumentException("Trees must have the same depth.");
+		}
+		for (int leaf = leaves; leaf < 2 * leaves; leaf++)
+			nodes[leaf] += other.nodes[leaf];
+		dirty = true;
+		return this;
+	}
+
+	// Independent copy, for tables that hand out the tree they keep up to date
+	public MerkleTree copy() {
+		MerkleTree tree = new MerkleTree(depth);
+		System.arraycopy(nodes, 0, tree.nodes, 0, nodes.length);
+		tree.dirty = dirty;
+		return tree;
+	}
+
+	// Bucket sums, from which the whole tree can be rebuilt; used to send a tree over the
+	// wire or to store it next to a file table
+	public long[] buckets() {
+		return Arrays.copyOfRange(nodes, leaves, 2 * leaves);
+	}
+
+	public static MerkleTree fromBuckets(long[] buckets) {
+		MerkleTree tree = new MerkleTree(Integer.numberOfTrailingZeros(buckets.length));
+		System.arraycopy(buckets, 0, tree.nodes, tree.leaves, buckets.length);
+		tree.dirty = true;
+		return tree;
+	}
+
+	public void add(String key, List<Object> fields) {
+		nodes[leaves + bucketOf(key)] += digest(key, fields);
+		dirty = true;
+	}
+
+	public void remove(String key, List<Object> fields) {
+		nodes[leaves + bucketOf(key)] -= digest(key, fields);
+		dirty = true;
+	}
+
+	// Leaf bucket of the key, in [0, 2^depth)
+	public int bucketOf(String key) {
+		return bucketOf(key, depth);
+	}
+
+	public static int bucketOf(String key, int depth) {
+		return (int) (mix(hash(key)) >>> (64 - depth));
+	}
+
+	public long root() {
+		rebuild();
+		return nodes[1];
+	}
+
+	// Buckets whose rows differ between the two trees, found by walking down only into
+	// subtrees whose hashes disagree
+	public BitSet diff(MerkleTree other) {
+		if (other.depth != depth) {
+			throw new IllegalArgumentException("Trees must have the same depth.");
+		}
+		rebuild();
+		other.rebuild();
+
+		BitSet buckets = new BitSet(leaves);
+		Deque<Integer> pending = new ArrayDeque<>();
+		pending.push(1);
+		while (!pending.isEmpty()) {
+			int node = pending.pop();
+			if (nodes[node] == other.nodes[node]) {
+				continue;
+			}
+			if (node >= leaves) {
+				buckets.set(node - leaves);
+			} else {
+				pending.push(2 * node + 1);
+				pending.push(2 * node);
+			}
+		}
+		return buckets;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof MerkleTree tree && tree.depth == depth && tree.root() == root();
+	}
+
+	@Override
+	public int hashCode() {
+		return Long.hashCode(root());
+	}
+
+	// Inner nodes are recomputed in one bottom-up pass after rows changed
+	private void rebuild() {
+		if (dirty) {
+			for (int node = leaves - 1; node >= 1; node--)
+				nodes[node] = mix(nodes[2 * node] ^ Long.rotateLeft(nodes[2 * node + 1], 29));
+			dirty = false;
+		}
+	}
+
+	// 64-bit digest of a whole row, the amount add and remove change its bucket by; fields
+	// are combined in order
+	public static long digest(String key, List<Object> fields) {
+		long digest = hash(key);
+		for (Object field : fields)
+			digest = mix(digest * 31 + hash(field));
+		return mix(digest);
+	}
+
+	private static long hash(Object value) {
+		if (value == null) {
+			return 0x9E3779B97F4A7C15L;
+		} else if (value instanceof String string) {
+			// 64-bit FNV-1a over the chars
+			long hash = 0xcbf29ce484222325L;
+			for (int i = 0; i < string.length(); i++) {
+				hash ^= string.charAt(i);
+				hash *= 0x100000001b3L;
+			}
+			return hash;
+		} else if (value instanceof Integer integer) {
+			return mix(integer + 1L);
+		} else if (value instanceof Double number) {
+			return mix(Double.doubleToLongBits(number) + 2);
+		} else if (value instanceof Boolean bool) {
+			return bool ? 0xB5297A4D3F84D5B5L : 0x68E31DA4A2F5C6A3L;
+		}
+		return hash(String.valueOf(value));
+	}
+
+	// 64-bit finalizer from MurmurHash3; maps 0 to 0, so empty subtrees hash to 0
+	private static long mix(long value) {
+		value ^= value >>> 33;
+		value *= 0xff51afd7ed558ccdL;
+		value ^= value >>> 33;
+		value *= 0xc4ceb9fe1a85ec53L;
+		value ^= value >>> 33;
+		return value;
+	}
+}
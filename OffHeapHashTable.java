@@ -0,0 +1,503 @@
+package tables;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import model.DataTable;
+import model.Row;
+import model.Table;
+
+// HashTable variant that keeps its rows outside the Java heap. Rows are serialized
+// into direct ByteBuffer chunks and located through an open-addressing index of
+// long offsets, so a table of millions of rows is a handful of objects to the GC.
+// Overwrites reuse a record's space when the new one fits; otherwise the old record is
+// dead space, and the chunks are compacted once dead space passes half of them. Chunks
+// dropped by clear() or compaction go to a free list that later chunks are taken from, so
+// native memory stays at the table's high-water mark instead of waiting for a GC.
+// close() does not free memory either: it drops the chunks, and the OS gets them back
+// only when the GC collects their buffers. A closed table cannot be used.
+public class OffHeapHashTable implements DataTable, AutoCloseable {
+
+	// Private variables
+	private String name;
+	private List<String> columns;
+	private long[] slots;
+	private int[] hashes;
+	private List<ByteBuffer> chunks;
+	private final List<ByteBuffer> free = new ArrayList<>(); // dropped chunks, reused before allocating
+	private int size;
+	private int tombstones;
+	private long deadBytes; // bytes of overwritten and removed records still in the chunks
+	private int fingerprint;
+	private boolean closed;
+
+	// Index slot states; occupied slots hold the record offset plus one
+	private static final long EMPTY = 0;
+	private static final long SENTINEL = -1;
+
+	private static final int INITIAL_CAPACITY = 16;
+	private static final int FIRST_CHUNK_SIZE = 64 * 1024;
+	private static final int MAX_CHUNK_SIZE = 16 * 1024 * 1024;
+
+	// Dead bytes below this never trigger a compaction, so small tables are left alone
+	private static final long MIN_COMPACTION_BYTES = FIRST_CHUNK_SIZE;
+
+	// Field type tags in the serialized record, same set BinaryTable writes as names
+	private static final byte NULL = 0;
+	private static final byte STRING = 1;
+	private static final byte INTEGER = 2;
+	private static final byte DOUBLE = 3;
+	private static final byte BOOLEAN = 4;
+
+	public OffHeapHashTable(String name, List<String> columns) {
+		this.name = name;
+		this.columns = columns;
+		this.chunks = new ArrayList<>();
+		clear();
+	}
+
+	@Override
+	public void clear() {
+		checkOpen();
+		free.addAll(chunks);
+		chunks = new ArrayList<>();
+		slots = new long[INITIAL_CAPACITY];
+		hashes = new int[INITIAL_CAPACITY];
+		size = 0;
+		tombstones = 0;
+		deadBytes = 0;
+		fingerprint = 0;
+	}
+
+	// Drops the off-heap chunks, which the GC frees with their buffers; any further use of
+	// the table throws
+	@Override
+	public void close() {
+		if (!closed) {
+			chunks = List.of();
+			free.clear();
+			slots = null;
+			hashes = null;
+			closed = true;
+		}
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+		checkOpen();
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		// Guard condition for fields that are too wide or too narrow
+		if (fields.size() + 1 != degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+
+		// Trigger rehash when live rows and tombstones fill 75% of the index
+		if (size + tombstones + 1 > capacity() * 0.75) {
+			rehash();
+		}
+
+		byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+		Record record = encode(keyBytes, fields); // throws before anything changes
+		int hash = hashFunction(keyBytes);
+		int mask = capacity() - 1;
+		int sentinelIndex = -1; // track first sentinel if encountered
+
+		for (int index = hash & mask; ; index = (index + 1) & mask) {
+			long slot = slots[index];
+			if (slot == EMPTY) {
+				// If a sentinel was found earlier, use its index to insert the new row
+				if (sentinelIndex != -1) {
+					index = sentinelIndex;
+					tombstones--;
+				}
+				slots[index] = write(reserve(record.length()), record) + 1;
+				hashes[index] = hash;
+				fingerprint += new Row(key, fields).hashCode();
+				size++;
+				return null;
+			} else if (slot == SENTINEL) {
+				if (sentinelIndex == -1) {
+					sentinelIndex = index; // Save sentinel index for possible reuse
+				}
+			} else if (hashes[index] == hash && keyEquals(slot - 1, keyBytes)) {
+				// Hit: the new record goes in the old one's place if it fits, else the old one is dead
+				List<Object> oldFields = readRow(slot - 1).fields();
+				fingerprint -= new Row(key, oldFields).hashCode();
+				int oldLength = recordLength(slot - 1);
+				if (record.length() <= oldLength) {
+					write(slot - 1, record);
+					deadBytes += oldLength - record.length();
+				} else {
+					slots[index] = write(reserve(record.length()), record) + 1;
+					deadBytes += oldLength;
+				}
+				fingerprint += new Row(key, fields).hashCode();
+				compactIfSparse();
+				return oldFields;
+			}
+		}
+	}
+
+	@Override
+	public List<Object> get(String key) {
+		checkOpen();
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		int index = find(key.getBytes(StandardCharsets.UTF_8));
+		return index != -1 ? readRow(slots[index] - 1).fields() : null;
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+		checkOpen();
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		int index = find(key.getBytes(StandardCharsets.UTF_8));
+		if (index == -1) {
+			return null; // Miss
+		}
+
+		Row oldRow = readRow(slots[index] - 1);
+		fingerprint -= oldRow.hashCode();
+		deadBytes += recordLength(slots[index] - 1);
+		slots[index] = SENTINEL; // Mark this slot as deleted with the sentinel
+		tombstones++;
+		size--;
+		compactIfSparse();
+		return oldRow.fields();
+	}
+
+	@Override
+	public int degree() {
+		return columns.size();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		checkOpen();
+		return slots.length;
+	}
+
+	// Bytes of overwritten and removed records not yet compacted away
+	public long deadBytes() {
+		return deadBytes;
+	}
+
+	// Bytes of native memory currently reserved for rows, free chunks included
+	public long offHeapBytes() {
+		long bytes = 0;
+		for (ByteBuffer chunk : chunks) {
+			bytes += chunk.capacity();
+		}
+		for (ByteBuffer chunk : free) {
+			bytes += chunk.capacity();
+		}
+		return bytes;
+	}
+
+	@Override
+	public int hashCode() {
+		return fingerprint;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj instanceof Table)) {
+			if (this.hashCode() == obj.hashCode())
+				return true;
+			}
+			return false;
+	}
+
+	// Rows are decoded from native memory as the iterator reaches them
+	@Override
+	public Iterator<Row> iterator() {
+		checkOpen();
+		return new Iterator<>() {
+			private int currentIndex = 0;
+
+			@Override
+			public boolean hasNext() {
+				checkOpen();
+				while (currentIndex < slots.length && (slots[currentIndex] == EMPTY || slots[currentIndex] == SENTINEL)) {
+					currentIndex++;
+				}
+				return currentIndex < slots.length;
+			}
+
+			@Override
+			public Row next() {
+				if (!hasNext()) {
+					throw new IllegalStateException("No more elements");
+				}
+				return readRow(slots[currentIndex++] - 1);
+			}
+		};
+	}
+
+	@Override
+	public String name() {
+		return this.name;
+	}
+
+	@Override
+	public List<String> columns() {
+		return this.columns;
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	private void checkOpen() {
+		if (closed) {
+			throw new IllegalStateException("Table " + name + " is closed.");
+		}
+	}
+
+	// Same salted 32-bit FNV hash as HashTable, over the UTF-8 bytes of the key
+	private static int hashFunction(byte[] keyBytes) {
+		final int FNV_OFFSET_BASIS = 0x811c9dc5;
+		final int FNV_PRIME = 0x01000193;
+
+		int hash = FNV_OFFSET_BASIS;
+		for (byte b : keyBytes) {
+			hash ^= b & 0xff;
+			hash *= FNV_PRIME;
+		}
+		for (char c : "Haufe".toCharArray()) {
+			hash ^= c;
+			hash *= FNV_PRIME;
+		}
+
+		// Spread the high bits down since the index is masked, not modded by a prime
+		return hash ^ (hash >>> 16);
+	}
+
+	// Returns the index slot holding the key, or -1 on a miss
+	private int find(byte[] keyBytes) {
+		int hash = hashFunction(keyBytes);
+		int mask = capacity() - 1;
+
+		for (int index = hash & mask; ; index = (index + 1) & mask) {
+			long slot = slots[index];
+			if (slot == EMPTY) {
+				return -1;
+			} else if (slot != SENTINEL && hashes[index] == hash && keyEquals(slot - 1, keyBytes)) {
+				return index;
+			}
+		}
+	}
+
+	// Grow the index (or just sweep tombstones) and copy live records into fresh chunks
+	private void rehash() {
+		long[] oldSlots = slots;
+		int[] oldHashes = hashes;
+		List<ByteBuffer> oldChunks = chunks;
+
+		int newCapacity = size + 1 > oldSlots.length / 2 ? oldSlots.length * 2 : oldSlots.length;
+		slots = new long[newCapacity];
+		hashes = new int[newCapacity];
+		chunks = new ArrayList<>();
+		tombstones = 0;
+		deadBytes = 0;
+
+		int mask = newCapacity - 1;
+		for (int i = 0; i < oldSlots.length; i++) {
+			if (oldSlots[i] != EMPTY && oldSlots[i] != SENTINEL) {
+				int index = oldHashes[i] & mask;
+				while (slots[index] != EMPTY) {
+					index = (index + 1) & mask;
+				}
+				slots[index] = copyRecord(oldChunks, oldSlots[i] - 1) + 1;
+				hashes[index] = oldHashes[i];
+			}
+		}
+		free.addAll(oldChunks);
+	}
+
+	// Copies the live records into fresh chunks once most of the reserved bytes are dead
+	private void compactIfSparse() {
+		if (deadBytes > MIN_COMPACTION_BYTES && deadBytes * 2 > usedBytes()) {
+			rehash();
+		}
+	}
+
+	private long usedBytes() {
+		long bytes = 0;
+		for (ByteBuffer chunk : chunks) {
+			bytes += chunk.position();
+		}
+		return bytes;
+	}
+
+	// A row serialized up front, so a field of an unsupported type is rejected before the table changes
+	private record Record(int length, byte[] keyBytes, List<Object> fields, byte[][] strings) {}
+
+	// Record layout: int length, int key length, key bytes, short field count, then tag + payload per field
+	private static Record encode(byte[] keyBytes, List<Object> fields) {
+		byte[][] strings = new byte[fields.size()][];
+		int length = 4 + 4 + keyBytes.length + 2;
+		for (int i = 0; i < fields.size(); i++) {
+			Object field = fields.get(i);
+			length += 1;
+			if (field instanceof String s) {
+				strings[i] = s.getBytes(StandardCharsets.UTF_8);
+				length += 4 + strings[i].length;
+			} else if (field instanceof Integer) {
+				length += 4;
+			} else if (field instanceof Double) {
+				length += 8;
+			} else if (field instanceof Boolean) {
+				length += 1;
+			} else if (field != null) {
+				throw new IllegalArgumentException("Cannot store field of type " + field.getClass().getName());
+			}
+		}
+		return new Record(length, keyBytes, fields, strings);
+	}
+
+	// Writes the record at the offset and returns the offset
+	private long write(long offset, Record record) {
+		byte[] keyBytes = record.keyBytes();
+		List<Object> fields = record.fields();
+		byte[][] strings = record.strings();
+		ByteBuffer buffer = chunks.get((int) (offset >>> 32)).duplicate();
+		buffer.position((int) offset);
+		buffer.putInt(record.length());
+		buffer.putInt(keyBytes.length);
+		buffer.put(keyBytes);
+		buffer.putShort((short) fields.size());
+		for (int i = 0; i < fields.size(); i++) {
+			Object field = fields.get(i);
+			if (field instanceof String) {
+				buffer.put(STRING);
+				buffer.putInt(strings[i].length);
+				buffer.put(strings[i]);
+			} else if (field instanceof Integer value) {
+				buffer.put(INTEGER);
+				buffer.putInt(value);
+			} else if (field instanceof Double value) {
+				buffer.put(DOUBLE);
+				buffer.putDouble(value);
+			} else if (field instanceof Boolean value) {
+				buffer.put(BOOLEAN);
+				buffer.put((byte) (value ? 1 : 0));
+			} else {
+				buffer.put(NULL);
+			}
+		}
+		return offset;
+	}
+
+	// Finds room for a record of the given length; offsets pack the chunk number above the position
+	private long reserve(int length) {
+		ByteBuffer last = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+		if (last == null || last.remaining() < length) {
+			// Chunks double up to the maximum so small tables stay small
+			int chunkSize = last == null ? FIRST_CHUNK_SIZE : Math.min(MAX_CHUNK_SIZE, last.capacity() * 2);
+			last = newChunk(Math.max(chunkSize, length));
+			chunks.add(last);
+		}
+		long offset = ((long) (chunks.size() - 1) << 32) | last.position();
+		last.position(last.position() + length);
+		return offset;
+	}
+
+	// The smallest free chunk that holds the size, else a new one
+	private ByteBuffer newChunk(int size) {
+		int best = -1;
+		for (int i = 0; i < free.size(); i++) {
+			int capacity = free.get(i).capacity();
+			if (capacity >= size && (best == -1 || capacity < free.get(best).capacity())) {
+				best = i;
+			}
+		}
+		return best == -1 ? ByteBuffer.allocateDirect(size) : free.remove(best).clear();
+	}
+
+	private long copyRecord(List<ByteBuffer> from, long offset) {
+		ByteBuffer source = from.get((int) (offset >>> 32)).duplicate();
+		source.position((int) offset);
+		int length = source.getInt(source.position());
+		source.limit(source.position() + length);
+
+		long newOffset = reserve(length);
+		ByteBuffer target = chunks.get((int) (newOffset >>> 32)).duplicate();
+		target.position((int) newOffset);
+		target.put(source);
+		return newOffset;
+	}
+
+	private int recordLength(long offset) {
+		return chunks.get((int) (offset >>> 32)).getInt((int) offset);
+	}
+
+	private ByteBuffer recordAt(long offset) {
+		ByteBuffer buffer = chunks.get((int) (offset >>> 32)).duplicate();
+		buffer.position((int) offset + 4);
+		return buffer;
+	}
+
+	private boolean keyEquals(long offset, byte[] keyBytes) {
+		ByteBuffer buffer = recordAt(offset);
+		int keyLength = buffer.getInt();
+		if (keyLength != keyBytes.length) {
+			return false;
+		}
+		int start = buffer.position();
+		for (int i = 0; i < keyLength; i++) {
+			if (buffer.get(start + i) != keyBytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private Row readRow(long offset) {
+		ByteBuffer buffer = recordAt(offset);
+		String key = readString(buffer);
+		int numFields = buffer.getShort();
+		List<Object> fields = new ArrayList<>(numFields);
+		for (int i = 0; i < numFields; i++) {
+			byte type = buffer.get();
+			switch (type) {
+				case STRING -> fields.add(readString(buffer));
+				case INTEGER -> fields.add(buffer.getInt());
+				case DOUBLE -> fields.add(buffer.getDouble());
+				case BOOLEAN -> fields.add(buffer.get() != 0);
+				case NULL -> fields.add(null);
+				default -> throw new IllegalStateException("Unknown field type: " + type);
+			}
+		}
+		return new Row(key, fields);
+	}
+
+	private static String readString(ByteBuffer buffer) {
+		byte[] bytes = new byte[buffer.getInt()];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
@@ -0,0 +1,425 @@
+package model;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// Client side of TableServer: a Table whose rows live in another process. Every call is a
+// round trip, except in a pipeline(), where requests are sent back to back and their
+// responses matched up in order afterwards. Batches (putAll, getAll, removeAll) travel as
+// single requests. Scans stream the rows in chunks as the iterator advances.
+//
+// Like the file tables, a RemoteTable is not thread-safe; open one per thread, since the
+// server serializes requests anyway.
+public class RemoteTable implements Table, AutoCloseable {
+
+	// Requests sent but not yet answered at most; the client reads responses before sending
+	// more, which keeps the server's output bounded
+	private static final int WINDOW = 1024;
+
+	// Rows per PUT_ALL request
+	private static final int BATCH_ROWS = 4096;
+
+	// Bytes of encoded requests held back before they are written
+	private static final int SEND_BUFFER = 1 << 16;
+
+	private record Pending(byte op, CompletableFuture<Object> result) {}
+
+	private final SocketChannel channel;
+	private final TableProtocol.Input in = new TableProtocol.Input();
+	private final TableProtocol.Output out = new TableProtocol.Output();
+	private final Deque<Pending> inFlight = new ArrayDeque<>();
+	private final String name;
+	private final List<String> columns;
+	private Scan scan;
+
+	private RemoteTable(SocketChannel channel, String table) {
+		this.channel = channel;
+		Object[] description = (Object[]) call(TableProtocol.OPEN, out -> out.writeString(table));
+		this.name = (String) description[0];
+		@SuppressWarnings("unchecked")
+		List<String> columns = (List<String>) description[1];
+		this.columns = columns;
+	}
+
+	// Connects to a TableServer at a TCP or Unix-domain socket address and opens the named table
+	public static RemoteTable connect(SocketAddress address, String table) {
+		SocketChannel channel = null;
+		try {
+			channel = SocketChannel.open(address);
+			if (address instanceof InetSocketAddress) {
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			return new RemoteTable(channel, table);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (RuntimeException e) {
+			closeQuietly(channel);
+			throw e;
+		}
+	}
+
+	// Requests queued on a pipeline are written together and answered in order; their
+	// futures complete once the responses are read, at the latest on sync() or close()
+	public Pipeline pipeline() {
+		return new Pipeline();
+	}
+
+	public final class Pipeline implements AutoCloseable {
+		private Pipeline() {
+		}
+
+		public CompletableFuture<List<Object>> put(String key, List<Object> fields) {
+			checkRow(key, fields);
+			return send(TableProtocol.PUT, out -> out.writeRow(key, fields));
+		}
+
+		public CompletableFuture<List<Object>> get(String key) {
+			checkKey(key);
+			return send(TableProtocol.GET, out -> out.writeString(key));
+		}
+
+		public CompletableFuture<List<Object>> remove(String key) {
+			checkKey(key);
+			return send(TableProtocol.REMOVE, out -> out.writeString(key));
+		}
+
+		// Waits for every response so far
+		public void sync() {
+			RemoteTable.this.sync();
+		}
+
+		@Override
+		public void close() {
+			sync();
+		}
+	}
+
+	@Override
+	public void clear() {
+		call(TableProtocol.CLEAR, out -> {});
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object> put(String key, List<Object> fields) {
+		checkRow(key, fields);
+		return (List<Object>) call(TableProtocol.PUT, out -> out.writeRow(key, fields));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object> get(String key) {
+		checkKey(key);
+		return (List<Object>) call(TableProtocol.GET, out -> out.writeString(key));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public List<Object> remove(String key) {
+		checkKey(key);
+		return (List<Object>) call(TableProtocol.REMOVE, out -> out.writeString(key));
+	}
+
+	// Batches of BATCH_ROWS rows, pipelined
+	@Override
+	public void putAll(Iterable<Row> rows) {
+		List<Row> batch = new ArrayList<>();
+		for (Row row : rows) {
+			checkRow(row.key(), row.fields());
+			batch.add(row);
+			if (batch.size() == BATCH_ROWS) {
+				sendPutAll(batch);
+				batch = new ArrayList<>();
+			}
+		}
+		if (!batch.isEmpty()) {
+			sendPutAll(batch);
+		}
+		sync();
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<String, List<Object>> getAll(Collection<String> keys) {
+		keys.forEach(this::checkKey);
+		return (Map<String, List<Object>>) call(TableProtocol.GET_ALL, out -> out.writeStrings(List.copyOf(keys)));
+	}
+
+	@Override
+	@SuppressWarnings("unchecked")
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		keys.forEach(this::checkKey);
+		return (Map<String, List<Object>>) call(TableProtocol.REMOVE_ALL, out -> out.writeStrings(List.copyOf(keys)));
+	}
+
+	@Override
+	public int degree() {
+		return columns.size();
+	}
+
+	@Override
+	public int size() {
+		return (Integer) call(TableProtocol.SIZE, out -> {});
+	}
+
+	@Override
+	public int hashCode() {
+		return (Integer) call(TableProtocol.HASH, out -> {});
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Table && hashCode() == obj.hashCode();
+	}
+
+	// Built by the server, so only the bucket sums cross the connection
+	@Override
+	public MerkleTree merkleTree() {
+		return (MerkleTree) call(TableProtocol.MERKLE, out -> {});
+	}
+
+	// Asking for the tree does not read the rows over the connection, whatever the server does
+	@Override
+	public boolean maintainsMerkleTree() {
+		return true;
+	}
+
+	// Streams the rows a chunk at a time. Another call while the iterator is open reads the
+	// rest of the scan into memory first, as responses arrive in order.
+	@Override
+	public Iterator<Row> iterator() {
+		sync();
+		out.begin();
+		out.writeByte(TableProtocol.SCAN);
+		out.end();
+		flush();
+		scan = new Scan();
+		return scan;
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public List<String> columns() {
+		return columns;
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	@Override
+	public void close() {
+		try {
+			sync();
+		} finally {
+			closeQuietly(channel);
+		}
+	}
+
+	private interface Request {
+		void write(TableProtocol.Output out);
+	}
+
+	private Object call(byte op, Request request) {
+		CompletableFuture<Object> result = send(op, request);
+		sync();
+		try {
+			return result.join();
+		} catch (CompletionException e) {
+			throw (RuntimeException) e.getCause();
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private <T> CompletableFuture<T> send(byte op, Request request) {
+		finishScan();
+		if (inFlight.size() == WINDOW) {
+			flush();
+			receive();
+		}
+		out.begin();
+		out.writeByte(op);
+		request.write(out);
+		out.end();
+		CompletableFuture<Object> result = new CompletableFuture<>();
+		inFlight.add(new Pending(op, result));
+		if (out.size() >= SEND_BUFFER) {
+			flush();
+		}
+		return (CompletableFuture<T>) result;
+	}
+
+	private void sendPutAll(List<Row> batch) {
+		send(TableProtocol.PUT_ALL, out -> {
+			out.writeInt(batch.size());
+			for (Row row : batch)
+				out.writeRow(row.key(), row.fields());
+		});
+	}
+
+	private void sync() {
+		finishScan();
+		flush();
+		while (!inFlight.isEmpty())
+			receive();
+	}
+
+	private void flush() {
+		try {
+			while (out.writeTo(channel)) {
+				// Blocking channel; loops only on partial writes
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	// Reads the response to the oldest request in flight
+	private void receive() {
+		Pending pending = inFlight.poll();
+		ByteBuffer response = readFrame();
+		byte status = response.get();
+		if (status != TableProtocol.OK) {
+			pending.result().completeExceptionally(failure(status, response));
+			return;
+		}
+		pending.result().complete(switch (pending.op()) {
+			case TableProtocol.OPEN -> new Object[] {TableProtocol.readString(response), TableProtocol.readStrings(response)};
+			case TableProtocol.PUT, TableProtocol.GET, TableProtocol.REMOVE -> TableProtocol.readFields(response);
+			case TableProtocol.GET_ALL, TableProtocol.REMOVE_ALL -> readMap(response);
+			case TableProtocol.SIZE, TableProtocol.HASH -> response.getInt();
+			case TableProtocol.MERKLE -> {
+				long[] buckets = new long[TableProtocol.readCount(response, 8)];
+				response.asLongBuffer().get(buckets);
+				yield MerkleTree.fromBuckets(buckets);
+			}
+			default -> null;
+		});
+	}
+
+	private ByteBuffer readFrame() {
+		try {
+			ByteBuffer frame;
+			while ((frame = in.frame()) == null) {
+				if (in.readFrom(channel) == -1) {
+					throw new UncheckedIOException(new EOFException("Table server closed the connection"));
+				}
+			}
+			return frame;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static Map<String, List<Object>> readMap(ByteBuffer response) {
+		int count = response.getInt();
+		Map<String, List<Object>> rows = new LinkedHashMap<>();
+		for (int i = 0; i < count; i++)
+			rows.put(TableProtocol.readString(response), TableProtocol.readFields(response));
+		return rows;
+	}
+
+	private static RuntimeException failure(byte status, ByteBuffer response) {
+		String message = TableProtocol.readString(response);
+		return status == TableProtocol.BAD_REQUEST ? new IllegalArgumentException(message)
+			: new IllegalStateException(message);
+	}
+
+	private void finishScan() {
+		if (scan != null) {
+			scan.readAll();
+		}
+	}
+
+	private void checkKey(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+	}
+
+	private void checkRow(String key, List<Object> fields) {
+		checkKey(key);
+		if (fields == null) {
+			throw new IllegalArgumentException("Fields cannot be null.");
+		}
+	}
+
+	private static void closeQuietly(SocketChannel channel) {
+		if (channel != null) {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Nothing left to release
+			}
+		}
+	}
+
+	private final class Scan implements Iterator<Row> {
+		private final Deque<Row> rows = new ArrayDeque<>();
+		private boolean done;
+
+		@Override
+		public boolean hasNext() {
+			while (rows.isEmpty() && !done)
+				readChunk();
+			return !rows.isEmpty();
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more elements");
+			}
+			return rows.poll();
+		}
+
+		// Buffers the remaining chunks so the connection is free for other requests
+		void readAll() {
+			while (!done)
+				readChunk();
+		}
+
+		private void readChunk() {
+			ByteBuffer chunk = readFrame();
+			byte status = chunk.get();
+			if (status != TableProtocol.OK) {
+				finish();
+				throw failure(status, chunk);
+			}
+			int count = chunk.getInt();
+			if (count == 0) {
+				finish();
+			}
+			for (int i = 0; i < count; i++)
+				rows.add(new Row(TableProtocol.readString(chunk), TableProtocol.readFields(chunk)));
+		}
+
+		private void finish() {
+			done = true;
+			if (scan == this) {
+				scan = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,152 @@
+package model;
+
+import java.util.Iterator;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+// Publishes a table's rows with backpressure. Each subscription opens table.stream() on its
+// first request and reads only as many rows as the subscriber has asked for, so a slow
+// subscriber holds back the reading instead of letting rows pile up. Cancelling, completing
+// or failing closes the stream and with it any open file.
+//
+// Rows are delivered on the thread that calls request(), or on the executor if one is given.
+// Reentrant request() calls from onNext are queued rather than recursing.
+public class RowPublisher implements Flow.Publisher<Row> {
+	private final Table table;
+	private final Executor executor;
+
+	public RowPublisher(Table table) {
+		this(table, null);
+	}
+
+	public RowPublisher(Table table, Executor executor) {
+		this.table = table;
+		this.executor = executor;
+	}
+
+	@Override
+	public void subscribe(Flow.Subscriber<? super Row> subscriber) {
+		Objects.requireNonNull(subscriber);
+		var subscription = new RowSubscription(subscriber);
+		subscriber.onSubscribe(subscription);
+	}
+
+	private class RowSubscription implements Flow.Subscription {
+		private final Flow.Subscriber<? super Row> subscriber;
+		private final AtomicLong requested = new AtomicLong();
+		private final AtomicInteger pendingDrains = new AtomicInteger();
+		private volatile boolean cancelled;
+		private volatile Throwable invalidRequest;
+
+		// Only touched inside drain, which never runs on two threads at once
+		private Stream<Row> stream;
+		private Iterator<Row> rows;
+		private boolean done;
+
+		RowSubscription(Flow.Subscriber<? super Row> subscriber) {
+			this.subscriber = subscriber;
+		}
+
+		@Override
+		public void request(long n) {
+			if (n <= 0) {
+				invalidRequest = new IllegalArgumentException("Request must be positive, was " + n);
+			} else {
+				// Demand saturates at Long.MAX_VALUE, meaning unbounded
+				requested.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+			}
+			schedule();
+		}
+
+		@Override
+		public void cancel() {
+			cancelled = true;
+			schedule();
+		}
+
+		private void schedule() {
+			if (pendingDrains.getAndIncrement() == 0) {
+				if (executor == null) {
+					drain();
+				} else {
+					executor.execute(this::drain);
+				}
+			}
+		}
+
+		// Each pass emits as far as the demand allows; loops while more signals arrived meanwhile
+		private void drain() {
+			int missed = 1;
+			do {
+				emit();
+				missed = pendingDrains.addAndGet(-missed);
+			} while (missed != 0);
+		}
+
+		private void emit() {
+			if (done) {
+				return;
+			}
+			if (cancelled) {
+				release();
+				return;
+			}
+			if (invalidRequest != null) {
+				fail(invalidRequest);
+				return;
+			}
+
+			try {
+				if (rows == null) {
+					stream = table.stream();
+					rows = stream.iterator();
+				}
+
+				long demand = requested.get();
+				long emitted = 0;
+				while (emitted != demand) {
+					if (cancelled) {
+						release();
+						return;
+					}
+					if (!rows.hasNext()) {
+						release();
+						subscriber.onComplete();
+						return;
+					}
+					subscriber.onNext(rows.next());
+					emitted++;
+				}
+				// Demand that ends on the last row completes now rather than on the next request
+				if (!cancelled && !rows.hasNext()) {
+					release();
+					subscriber.onComplete();
+					return;
+				}
+				if (emitted > 0 && demand != Long.MAX_VALUE) {
+					requested.addAndGet(-emitted);
+				}
+			} catch (RuntimeException e) {
+				fail(e);
+			}
+		}
+
+		private void fail(Throwable e) {
+			release();
+			subscriber.onError(e);
+		}
+
+		private void release() {
+			done = true;
+			if (stream != null) {
+				stream.close();
+				stream = null;
+				rows = null;
+			}
+		}
+	}
+}
@@ -0,0 +1,33 @@
+package model;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Immutable column names of a table with a precomputed name-to-index lookup. File tables
+// load it once instead of re-reading their header or metadata on every call.
+public final class Schema {
+	private final List<String> columns;
+	private final Map<String, Integer> indexes;
+
+	public Schema(List<String> columns) {
+		this.columns = List.copyOf(columns);
+		this.indexes = new HashMap<>(columns.size() * 2);
+		for (int i = 0; i < columns.size(); i++)
+			indexes.putIfAbsent(columns.get(i), i); // first match, like indexOf
+	}
+
+	public List<String> columns() {
+		return columns;
+	}
+
+	public int degree() {
+		return columns.size();
+	}
+
+	// Index of the column, or -1 if the table has no such column
+	public int indexOf(String columnName) {
+		Integer index = indexes.get(columnName);
+		return index == null ? -1 : index;
+	}
+}
@@ -0,0 +1,629 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import tables.HashTable;
+
+// One logical table spread over N underlying tables of any implementation. Keys are routed
+// by consistent hashing: every shard owns VNODES points on a 64-bit ring and a key belongs
+// to the first point at or after its hash, so adding a shard moves only about 1/N of the
+// rows. Each shard is used under its own monitor, so callers working on different shards
+// run in parallel; batches, scans, filters and aggregates fan out over the executor and
+// merge the per-shard results. The fingerprint is the sum of the shard fingerprints, which
+// equals that of the same rows in a single table.
+//
+// reshard(shards) switches to a new set of shards online: rows are then moved a batch at a
+// time by migrate(maxRows), while reads look in the new owner first and then the old one.
+// Keep existing shards at the same positions in the new list so their rows stay put.
+public class ShardedTable implements Table {
+
+	// Ring points per shard; more points even out the share of keys each shard gets
+	private static final int VNODES = 128;
+
+	private final String name;
+	private final List<String> columns;
+	private final Executor executor;
+
+	// Write-locked only while a migration batch moves rows, so no operation sees a row in both places
+	private final ReentrantReadWriteLock migrationLock = new ReentrantReadWriteLock();
+	private volatile Ring ring;
+	private volatile Ring previous;
+
+	// Old shards still to be drained during a reshard, and the keys waiting to move; guarded
+	// by migrator, which reshard(), migrate() and clear() take before migrationLock
+	private final Object migrator = new Object();
+	private int drainIndex;
+	private List<String> pendingKeys = new ArrayList<>();
+
+	public ShardedTable(String name, List<String> columns, List<? extends Table> shards) {
+		this(name, columns, shards, ForkJoinPool.commonPool());
+	}
+
+	public ShardedTable(String name, List<String> columns, List<? extends Table> shards, Executor executor) {
+		this.name = name;
+		this.columns = columns;
+		this.executor = executor;
+		this.ring = new Ring(check(shards));
+	}
+
+	public List<Table> shards() {
+		return ring.shards;
+	}
+
+	// Index in shards() of the shard that owns the key
+	public int shardOf(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+		return ring.indexOf(key);
+	}
+
+	public boolean isResharding() {
+		return previous != null;
+	}
+
+	// Starts routing keys over the given shards. Existing rows stay readable where they are
+	// until migrate() moves them; call it until it returns true.
+	public void reshard(List<? extends Table> shards) {
+		Ring next = new Ring(check(shards));
+		synchronized (migrator) {
+			migrationLock.writeLock().lock();
+			try {
+				if (previous != null) {
+					throw new IllegalStateException("A reshard is already in progress.");
+				}
+				previous = ring;
+				ring = next;
+				drainIndex = 0;
+				pendingKeys = new ArrayList<>();
+			} finally {
+				migrationLock.writeLock().unlock();
+			}
+		}
+	}
+
+	// Moves up to maxRows rows to their new shards and reports whether the reshard is done.
+	// Each old shard is scanned once for the keys it has to give up, under the read lock and
+	// the shard's monitor, so only that shard waits for the scan. The write lock is held
+	// just while each batch of those keys moves; a key rewritten or removed since the scan
+	// is no longer in the old shard and is skipped. Rows written since reshard() already
+	// live in their new shard.
+	public boolean migrate(int maxRows) {
+		synchronized (migrator) {
+			Ring old = previous;
+			if (old == null) {
+				return true;
+			}
+			int moved = 0;
+			while (moved < maxRows) {
+				if (pendingKeys.isEmpty()) {
+					if (drainIndex == old.shards.size()) {
+						finishReshard();
+						return true;
+					}
+					collectPendingKeys(old.shards.get(drainIndex++));
+					continue;
+				}
+				moved += moveBatch(old.shards.get(drainIndex - 1), maxRows - moved);
+			}
+			return false;
+		}
+	}
+
+	private void collectPendingKeys(Table shard) {
+		migrationLock.readLock().lock();
+		try {
+			synchronized (shard) {
+				for (Row row : shard) {
+					if (ring.shardFor(row.key()) != shard)
+						pendingKeys.add(row.key());
+				}
+			}
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	// Moves up to limit of the pending keys out of the source; returns how many were taken
+	private int moveBatch(Table source, int limit) {
+		migrationLock.writeLock().lock();
+		try {
+			int from = Math.max(0, pendingKeys.size() - limit);
+			List<String> batch = pendingKeys.subList(from, pendingKeys.size());
+			Map<String, List<Object>> rows = source.removeAll(batch);
+			for (var group : groupRows(rows).entrySet())
+				group.getKey().putAll(group.getValue());
+			int count = batch.size();
+			batch.clear();
+			return count;
+		} finally {
+			migrationLock.writeLock().unlock();
+		}
+	}
+
+	private void finishReshard() {
+		migrationLock.writeLock().lock();
+		try {
+			previous = null;
+			pendingKeys = new ArrayList<>();
+		} finally {
+			migrationLock.writeLock().unlock();
+		}
+	}
+
+	@Override
+	public void clear() {
+		synchronized (migrator) {
+			migrationLock.writeLock().lock();
+			try {
+				fanOut(tables(), table -> {
+					table.clear();
+					return null;
+				});
+				previous = null;
+				pendingKeys = new ArrayList<>();
+			} finally {
+				migrationLock.writeLock().unlock();
+			}
+		}
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+		if (fields.size() + 1 != degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+
+		migrationLock.readLock().lock();
+		try {
+			Table owner = ring.shardFor(key);
+			List<Object> old;
+			synchronized (owner) {
+				old = owner.put(key, fields);
+			}
+			// A row not yet migrated is moved by the put itself
+			Table stale = staleShard(key, owner);
+			if (stale != null) {
+				synchronized (stale) {
+					List<Object> moved = stale.remove(key);
+					if (old == null) {
+						old = moved;
+					}
+				}
+			}
+			return old;
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Object> get(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		migrationLock.readLock().lock();
+		try {
+			Table owner = ring.shardFor(key);
+			List<Object> fields;
+			synchronized (owner) {
+				fields = owner.get(key);
+			}
+			Table stale = fields == null ? staleShard(key, owner) : null;
+			if (stale != null) {
+				synchronized (stale) {
+					fields = stale.get(key);
+				}
+			}
+			return fields;
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		migrationLock.readLock().lock();
+		try {
+			Table owner = ring.shardFor(key);
+			List<Object> old;
+			synchronized (owner) {
+				old = owner.remove(key);
+			}
+			Table stale = staleShard(key, owner);
+			if (stale != null) {
+				synchronized (stale) {
+					List<Object> removed = stale.remove(key);
+					if (old == null) {
+						old = removed;
+					}
+				}
+			}
+			return old;
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	// Groups the batch by shard and writes every group in parallel, one putAll per shard
+	@Override
+	public void putAll(Iterable<Row> rows) {
+		Map<String, List<Object>> batch = new LinkedHashMap<>();
+		for (Row row : rows) {
+			if (row.key() == null) {
+				throw new IllegalArgumentException("Key cannot be null.");
+			}
+			if (row.fields().size() + 1 != degree()) {
+				throw new IllegalArgumentException("Amount of fields do not match the degree.");
+			}
+			batch.put(row.key(), row.fields());
+		}
+
+		migrationLock.readLock().lock();
+		try {
+			Map<Table, List<Row>> groups = groupRows(batch);
+			fanOut(groups.keySet(), shard -> {
+				shard.putAll(groups.get(shard));
+				return null;
+			});
+			if (previous != null) {
+				removeStale(batch.keySet());
+			}
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<String, List<Object>> getAll(Collection<String> keys) {
+		migrationLock.readLock().lock();
+		try {
+			Map<String, List<Object>> found = new LinkedHashMap<>();
+			Map<Table, List<String>> groups = groupKeys(keys, ring);
+			for (Map<String, List<Object>> part : fanOut(groups.keySet(), shard -> shard.getAll(groups.get(shard))))
+				found.putAll(part);
+
+			Ring old = previous;
+			if (old != null) {
+				List<String> missing = new ArrayList<>();
+				for (String key : keys)
+					if (!found.containsKey(key) && old.shardFor(key) != ring.shardFor(key))
+						missing.add(key);
+				Map<Table, List<String>> stale = groupKeys(missing, old);
+				for (Map<String, List<Object>> part : fanOut(stale.keySet(), shard -> shard.getAll(stale.get(shard))))
+					found.putAll(part);
+			}
+
+			// In the order of the given keys, like the other tables
+			Map<String, List<Object>> ordered = new LinkedHashMap<>();
+			for (String key : keys) {
+				List<Object> fields = found.get(key);
+				if (fields != null)
+					ordered.put(key, fields);
+			}
+			return ordered;
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	@Override
+	public Map<String, List<Object>> removeAll(Collection<String> keys) {
+		migrationLock.readLock().lock();
+		try {
+			Map<String, List<Object>> removed = new LinkedHashMap<>();
+			Map<Table, List<String>> groups = groupKeys(keys, ring);
+			for (Map<String, List<Object>> part : fanOut(groups.keySet(), shard -> shard.removeAll(groups.get(shard))))
+				removed.putAll(part);
+			if (previous != null) {
+				for (var entry : removeStale(keys).entrySet())
+					removed.putIfAbsent(entry.getKey(), entry.getValue());
+			}
+
+			Map<String, List<Object>> ordered = new LinkedHashMap<>();
+			for (String key : keys) {
+				List<Object> fields = removed.remove(key);
+				if (fields != null)
+					ordered.put(key, fields);
+			}
+			return ordered;
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	// Each shard filters its own rows in parallel; the matches are merged into one table
+	@Override
+	public DataTable filter(String columnName, Object value) {
+		if (columnIndex(columnName) == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		var filteredTable = new HashTable((name() + " Filtered"), columns());
+		for (DataTable part : read(table -> table.filter(columnName, value)))
+			filteredTable.putAll(part);
+		return filteredTable;
+	}
+
+	// Per-shard partial aggregates, merged like the per-thread ones of Table.aggregate
+	@Override
+	public Number aggregate(Aggregate function, String columnName) {
+		int columnIndex = columnIndex(columnName);
+		if (columnIndex == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+		Accumulator total = new Accumulator(function);
+		for (Accumulator partial : read(table -> {
+			Accumulator accumulator = new Accumulator(function);
+			for (Row row : table)
+				accumulator.add(columnIndex == 0 ? row.key() : row.fields().get(columnIndex - 1));
+			return accumulator;
+		}))
+			total.merge(partial);
+		return total.result();
+	}
+
+	@Override
+	public int degree() {
+		return columns.size();
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (int shardSize : read(Table::size))
+			size += shardSize;
+		return size;
+	}
+
+	// Fingerprints are sums, so the shards' sum is the table's
+	@Override
+	public int hashCode() {
+		int fingerprint = 0;
+		for (int shardFingerprint : read(Table::hashCode))
+			fingerprint += shardFingerprint;
+		return fingerprint;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		return obj instanceof Table && hashCode() == obj.hashCode();
+	}
+
+	// Bucket sums add up like fingerprints, so the shards' trees merge into the table's
+	@Override
+	public MerkleTree merkleTree() {
+		MerkleTree tree = new MerkleTree(MerkleTree.DEFAULT_DEPTH);
+		for (MerkleTree shardTree : read(Table::merkleTree))
+			tree.merge(shardTree);
+		return tree;
+	}
+
+	@Override
+	public boolean maintainsMerkleTree() {
+		return !read(Table::maintainsMerkleTree).contains(false);
+	}
+
+	// Shard after shard; not locked, so like the underlying tables it should not run
+	// alongside writers
+	@Override
+	public Iterator<Row> iterator() {
+		List<Table> tables = tables();
+		return new Iterator<>() {
+			private int shard = 0;
+			private Iterator<Row> rows = Collections.emptyIterator();
+
+			@Override
+			public boolean hasNext() {
+				while (!rows.hasNext() && shard < tables.size()) {
+					rows = tables.get(shard++).iterator();
+				}
+				return rows.hasNext();
+			}
+
+			@Override
+			public Row next() {
+				if (!hasNext()) {
+					throw new IllegalStateException("No more elements");
+				}
+				return rows.next();
+			}
+		};
+	}
+
+	@Override
+	public Stream<Row> stream() {
+		return tables().stream().flatMap(Table::stream);
+	}
+
+	@Override
+	public String name() {
+		return name;
+	}
+
+	@Override
+	public List<String> columns() {
+		return columns;
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	private List<Table> check(List<? extends Table> shards) {
+		if (shards.isEmpty()) {
+			throw new IllegalArgumentException("At least one shard is required.");
+		}
+		for (Table shard : shards) {
+			if (shard.degree() != degree()) {
+				throw new IllegalArgumentException("Amount of shard columns do not match the degree.");
+			}
+		}
+		return List.copyOf(shards);
+	}
+
+	// The old shard that may still hold the key during a reshard, or null
+	private Table staleShard(String key, Table owner) {
+		Ring old = previous;
+		if (old == null) {
+			return null;
+		}
+		Table shard = old.shardFor(key);
+		return shard == owner ? null : shard;
+	}
+
+	// Removes the keys from old shards that no longer own them; called during a reshard
+	private Map<String, List<Object>> removeStale(Collection<String> keys) {
+		List<String> stale = new ArrayList<>();
+		for (String key : keys)
+			if (staleShard(key, ring.shardFor(key)) != null)
+				stale.add(key);
+		Map<Table, List<String>> groups = groupKeys(stale, previous);
+		Map<String, List<Object>> removed = new LinkedHashMap<>();
+		for (Map<String, List<Object>> part : fanOut(groups.keySet(), shard -> shard.removeAll(groups.get(shard))))
+			removed.putAll(part);
+		return removed;
+	}
+
+	// Every distinct table holding rows: the current shards plus, during a reshard, old ones
+	private List<Table> tables() {
+		Set<Table> tables = Collections.newSetFromMap(new IdentityHashMap<>());
+		tables.addAll(ring.shards);
+		Ring old = previous;
+		if (old != null) {
+			tables.addAll(old.shards);
+		}
+		return new ArrayList<>(tables);
+	}
+
+	private Map<Table, List<Row>> groupRows(Map<String, List<Object>> rows) {
+		Map<Table, List<Row>> groups = new IdentityHashMap<>();
+		for (var entry : rows.entrySet())
+			groups.computeIfAbsent(ring.shardFor(entry.getKey()), shard -> new ArrayList<>())
+				.add(new Row(entry.getKey(), entry.getValue()));
+		return groups;
+	}
+
+	private static Map<Table, List<String>> groupKeys(Collection<String> keys, Ring ring) {
+		Map<Table, List<String>> groups = new IdentityHashMap<>();
+		for (String key : keys) {
+			if (key == null) {
+				throw new IllegalArgumentException("Key cannot be null.");
+			}
+			groups.computeIfAbsent(ring.shardFor(key), shard -> new ArrayList<>()).add(key);
+		}
+		return groups;
+	}
+
+	private <T> List<T> read(Function<Table, T> action) {
+		migrationLock.readLock().lock();
+		try {
+			return fanOut(tables(), action);
+		} finally {
+			migrationLock.readLock().unlock();
+		}
+	}
+
+	// Runs the action on every shard under its monitor, in parallel on the executor; the
+	// last shard runs on the calling thread, so a single shard costs no hand-off
+	private <T> List<T> fanOut(Collection<Table> shards, Function<Table, T> action) {
+		List<Table> tables = new ArrayList<>(shards);
+		List<CompletableFuture<T>> futures = new ArrayList<>(tables.size());
+		for (int i = 0; i < tables.size() - 1; i++) {
+			Table shard = tables.get(i);
+			futures.add(CompletableFuture.supplyAsync(() -> apply(shard, action), executor));
+		}
+
+		List<T> results = new ArrayList<>(tables.size());
+		T last = tables.isEmpty() ? null : apply(tables.get(tables.size() - 1), action);
+		try {
+			for (CompletableFuture<T> future : futures)
+				results.add(future.join());
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException cause) {
+				throw cause;
+			}
+			throw e;
+		}
+		if (!tables.isEmpty()) {
+			results.add(last);
+		}
+		return results;
+	}
+
+	private static <T> T apply(Table shard, Function<Table, T> action) {
+		synchronized (shard) {
+			return action.apply(shard);
+		}
+	}
+
+	// Consistent hash ring over one list of shards. A shard's points depend only on its
+	// position in the list, so the same table at the same position keeps its keys.
+	private static final class Ring {
+		private final List<Table> shards;
+		private final long[] points;
+		private final int[] owners;
+
+		Ring(List<Table> shards) {
+			this.shards = shards;
+			int count = shards.size() * VNODES;
+			long[][] entries = new long[count][];
+			for (int shard = 0; shard < shards.size(); shard++)
+				for (int replica = 0; replica < VNODES; replica++)
+					entries[shard * VNODES + replica] = new long[] {mix(((long) shard << 32) | replica), shard};
+			Arrays.sort(entries, (a, b) -> Long.compare(a[0], b[0]));
+			points = new long[count];
+			owners = new int[count];
+			for (int i = 0; i < count; i++) {
+				points[i] = entries[i][0];
+				owners[i] = (int) entries[i][1];
+			}
+		}
+
+		int indexOf(String key) {
+			int index = Arrays.binarySearch(points, mix(key.hashCode()));
+			if (index < 0) {
+				index = -index - 1;
+			}
+			return owners[index == points.length ? 0 : index];
+		}
+
+		Table shardFor(String key) {
+			return shards.get(indexOf(key));
+		}
+
+		// 64-bit finalizer from MurmurHash3, spreading nearby inputs over the whole ring
+		private static long mix(long value) {
+			value ^= value >>> 33;
+			value *= 0xff51afd7ed558ccdL;
+			value ^= value >>> 33;
+			value *= 0xc4ceb9fe1a85ec53L;
+			value ^= value >>> 33;
+			return value;
+		}
+	}
+}
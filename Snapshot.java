@@ -0,0 +1,286 @@
+package model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary snapshot files for the in-memory tables. A snapshot is written with one buffered
+// sequential pass and read back through memory-mapped windows, so restoring costs little
+// more than copying the bytes. Every file starts with a magic number, a version and the
+// kind of table; strings are an int byte length followed by UTF-8, fields a type tag byte
+// followed by the value. A Writer fills a temporary file next to the target and only
+// commit() moves it into place, so a failed save leaves the previous snapshot intact.
+public final class Snapshot {
+	private static final int MAGIC = 0x54424C53; // "TBLS"
+	private static final int VERSION = 1;
+
+	// Field type tags, shared with TableProtocol
+	static final byte NULL = 0;
+	static final byte STRING = 1;
+	static final byte INTEGER = 2;
+	static final byte DOUBLE = 3;
+	static final byte BOOLEAN = 4;
+
+	private Snapshot() {
+	}
+
+	public static final class Writer implements Closeable {
+		private final Path file;
+		private final Path temporary;
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		private boolean committed;
+
+		public Writer(Path file, String kind) {
+			this.file = file;
+			this.temporary = file.resolveSibling(file.getFileName() + ".tmp");
+			try {
+				channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+					StandardOpenOption.TRUNCATE_EXISTING);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			writeInt(MAGIC);
+			writeInt(VERSION);
+			writeString(kind);
+		}
+
+		public void writeByte(int value) {
+			ensure(1);
+			buffer.put((byte) value);
+		}
+
+		public void writeInt(int value) {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		public void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			writeInt(bytes.length);
+			if (bytes.length > buffer.capacity()) {
+				drain();
+				write(ByteBuffer.wrap(bytes));
+			} else {
+				ensure(bytes.length);
+				buffer.put(bytes);
+			}
+		}
+
+		public void writeStrings(List<String> values) {
+			writeInt(values.size());
+			for (String value : values)
+				writeString(value);
+		}
+
+		public void writeRow(CompactRow row) {
+			writeString(row.key());
+			writeInt(row.size());
+			for (Object field : row) {
+				if (field == null) {
+					writeByte(NULL);
+				} else if (field instanceof String string) {
+					writeByte(STRING);
+					writeString(string);
+				} else if (field instanceof Integer integer) {
+					writeByte(INTEGER);
+					writeInt(integer);
+				} else if (field instanceof Double number) {
+					ensure(9);
+					buffer.put(DOUBLE).putDouble(number);
+				} else if (field instanceof Boolean bool) {
+					ensure(2);
+					buffer.put(BOOLEAN).put((byte) (bool ? 1 : 0));
+				} else {
+					throw new IllegalStateException("Cannot snapshot field of type " + field.getClass().getName());
+				}
+			}
+		}
+
+		// Writes out the rest and atomically replaces the target with the finished file
+		public void commit() {
+			drain();
+			try {
+				channel.force(false);
+				channel.close();
+				Files.move(temporary, file, StandardCopyOption.ATOMIC_MOVE);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			committed = true;
+		}
+
+		// Without a commit, the snapshot is abandoned and the target left as it was
+		@Override
+		public void close() {
+			if (committed) {
+				return;
+			}
+			try {
+				channel.close();
+				Files.deleteIfExists(temporary);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				drain();
+			}
+		}
+
+		private void drain() {
+			buffer.flip();
+			write(buffer);
+			buffer.clear();
+		}
+
+		private void write(ByteBuffer bytes) {
+			try {
+				while (bytes.hasRemaining())
+					channel.write(bytes);
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+	}
+
+	public static final class Reader implements Closeable {
+		// Largest window mapped at once; a value never straddles windows because the
+		// window is remapped from the current position whenever too few bytes remain
+		private static final long WINDOW = 1L << 30;
+
+		private final Path file;
+		private final FileChannel channel;
+		private MappedByteBuffer buffer;
+		private long windowStart;
+
+		public Reader(Path file, String kind) {
+			try {
+				this.file = file;
+				this.channel = FileChannel.open(file, StandardOpenOption.READ);
+				if (channel.size() < 8) {
+					throw new IllegalStateException("Not a table snapshot: " + file);
+				}
+				map(0);
+				if (buffer.getInt() != MAGIC) {
+					throw new IllegalStateException("Not a table snapshot: " + file);
+				}
+				if (buffer.getInt() != VERSION) {
+					throw new IllegalStateException("Unsupported snapshot version: " + file);
+				}
+				if (!readString().equals(kind)) {
+					throw new IllegalStateException("Not a " + kind + " snapshot: " + file);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			} catch (RuntimeException e) {
+				close();
+				throw e;
+			}
+		}
+
+		public byte readByte() {
+			ensure(1);
+			return buffer.get();
+		}
+
+		public int readInt() {
+			ensure(4);
+			return buffer.getInt();
+		}
+
+		public String readString() {
+			int length = readLength();
+			ensure(length);
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			return new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		public List<String> readStrings() {
+			int count = readLength();
+			List<String> values = new ArrayList<>(count);
+			for (int i = 0; i < count; i++)
+				values.add(readString());
+			return values;
+		}
+
+		public CompactRow readRow() {
+			String key = readString();
+			Object[] values = new Object[readLength()];
+			for (int i = 0; i < values.length; i++) {
+				byte type = readByte();
+				values[i] = switch (type) {
+					case NULL -> null;
+					case STRING -> readString();
+					case INTEGER -> readInt();
+					case DOUBLE -> {
+						ensure(8);
+						yield buffer.getDouble();
+					}
+					case BOOLEAN -> readByte() != 0;
+					default -> throw new IllegalStateException("Unknown field type " + type + " in " + file);
+				};
+			}
+			return new CompactRow(key, values);
+		}
+
+		@Override
+		public void close() {
+			try {
+				channel.close();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		// A length or count, which a damaged file could make negative or longer than the rest
+		// of the file; every byte, field, string or slot it counts takes at least one byte
+		public int readLength() {
+			int length = readInt();
+			if (length < 0 || length > remaining()) {
+				throw new IllegalStateException("Corrupt snapshot: " + file);
+			}
+			return length;
+		}
+
+		private long remaining() {
+			try {
+				return channel.size() - windowStart - buffer.position();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				long position = windowStart + buffer.position();
+				try {
+					if (channel.size() - position < bytes) {
+						throw new IllegalStateException("Truncated snapshot: " + file);
+					}
+					map(position);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+
+		private void map(long position) throws IOException {
+			windowStart = position;
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, Math.min(WINDOW, channel.size() - position));
+		}
+	}
+}
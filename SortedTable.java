@@ -0,0 +1,395 @@
+package tables;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Predicate;
+
+import model.CompactRow;
+import model.DataTable;
+import model.MerkleTree;
+import model.Row;
+import model.Table;
+
+public class SortedTable implements DataTable {
+
+	// Private variables
+	private String name;
+	private List<String> columns;
+	private Node root;
+	private Leaf head;
+	private int leaves;
+	private int size;
+	private int fingerprint;
+	// Kept up to date next to the fingerprint once merkleTree() was first called, null until then
+	private MerkleTree merkle;
+
+	// Maximum number of keys per node; wide nodes keep each binary search in a few cache lines
+	private static final int ORDER = 64;
+
+	public SortedTable(String name, List<String> columns) {
+		this.name = name;
+		this.columns = columns;
+		clear();
+	}
+
+	// Nodes hold one spare slot so an insert can overflow before the node is split
+	private abstract static class Node {
+		final String[] keys = new String[ORDER + 1];
+		int count;
+	}
+
+	private static final class Leaf extends Node {
+		final CompactRow[] rows = new CompactRow[ORDER + 1];
+		Leaf prev;
+		Leaf next;
+	}
+
+	// children[i] holds keys less than keys[i], children[i+1] holds keys greater or equal
+	private static final class Inner extends Node {
+		final Node[] children = new Node[ORDER + 2];
+	}
+
+	// Separator key and new right sibling handed up to the parent after a split
+	private record Split(String key, Node right) {}
+
+	@Override
+	public void clear() {
+		head = new Leaf();
+		root = head;
+		leaves = 1;
+		size = 0;
+		fingerprint = 0;
+		if (merkle != null) {
+			merkle = new MerkleTree(merkle.depth());
+		}
+	}
+
+	@Override
+	public List<Object> put(String key, List<Object> fields) {
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		// Guard condition for fields that are too wide or too narrow
+		if (fields.size() + 1 != degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+
+		CompactRow newRow = new CompactRow(key, fields);
+
+		// Hit: replace the row in place
+		Leaf leaf = findLeaf(key);
+		int index = Arrays.binarySearch(leaf.keys, 0, leaf.count, key);
+		if (index >= 0) {
+			List<Object> oldFields = leaf.rows[index].fields();
+			fingerprint -= leaf.rows[index].rowHash();
+			track(leaf.rows[index], newRow);
+			leaf.rows[index] = newRow;
+			fingerprint += newRow.rowHash();
+			return oldFields;
+		}
+
+		// Miss: insert and grow a new root if the old one split
+		Split split = insert(root, newRow);
+		if (split != null) {
+			Inner newRoot = new Inner();
+			newRoot.keys[0] = split.key();
+			newRoot.children[0] = root;
+			newRoot.children[1] = split.right();
+			newRoot.count = 1;
+			root = newRoot;
+		}
+		fingerprint += newRow.rowHash();
+		track(null, newRow);
+		size++;
+		return null;
+	}
+
+	@Override
+	public List<Object> get(String key) {
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		Leaf leaf = findLeaf(key);
+		int index = Arrays.binarySearch(leaf.keys, 0, leaf.count, key);
+		return index >= 0 ? leaf.rows[index].fields() : null;
+	}
+
+	@Override
+	public List<Object> remove(String key) {
+
+		// Guard condition for an invalid key
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		Leaf leaf = findLeaf(key);
+		int index = Arrays.binarySearch(leaf.keys, 0, leaf.count, key);
+		if (index < 0) {
+			return null; // Miss
+		}
+
+		// Hit: close the gap in the leaf, separators above stay valid so no rebalancing is needed
+		CompactRow oldRow = leaf.rows[index];
+		int tail = leaf.count - index - 1;
+		System.arraycopy(leaf.keys, index + 1, leaf.keys, index, tail);
+		System.arraycopy(leaf.rows, index + 1, leaf.rows, index, tail);
+		leaf.count--;
+		leaf.keys[leaf.count] = null;
+		leaf.rows[leaf.count] = null;
+
+		fingerprint -= oldRow.rowHash();
+		track(oldRow, null);
+		size--;
+		return oldRow.fields();
+	}
+
+	// Returns the row with the greatest key less than or equal to the given key, or null
+	public Row floor(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		Leaf leaf = findLeaf(key);
+		int index = Arrays.binarySearch(leaf.keys, 0, leaf.count, key);
+		if (index >= 0) {
+			return leaf.rows[index].toRow();
+		}
+		int before = -(index + 1) - 1;
+		if (before >= 0) {
+			return leaf.rows[before].toRow();
+		}
+
+		// Walk back past empty leaves
+		for (leaf = leaf.prev; leaf != null; leaf = leaf.prev) {
+			if (leaf.count > 0) {
+				return leaf.rows[leaf.count - 1].toRow();
+			}
+		}
+		return null;
+	}
+
+	// Returns the row with the least key greater than or equal to the given key, or null
+	public Row ceiling(String key) {
+		if (key == null) {
+			throw new IllegalArgumentException("Key cannot be null.");
+		}
+
+		var cursor = new Cursor(key, k -> true);
+		return cursor.hasNext() ? cursor.next() : null;
+	}
+
+	// Rows with keys from fromKey (inclusive) to toKey (exclusive), in key order
+	public Iterable<Row> range(String fromKey, String toKey) {
+		if (fromKey == null || toKey == null) {
+			throw new IllegalArgumentException("Range bounds cannot be null.");
+		}
+		return () -> new Cursor(fromKey, k -> k.compareTo(toKey) < 0);
+	}
+
+	// Rows whose keys start with the given prefix, in key order
+	public Iterable<Row> prefix(String prefix) {
+		if (prefix == null) {
+			throw new IllegalArgumentException("Prefix cannot be null.");
+		}
+		return () -> new Cursor(prefix, k -> k.startsWith(prefix));
+	}
+
+	@Override
+	public int degree() {
+		return columns.size();
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public int capacity() {
+		return leaves * ORDER;
+	}
+
+	@Override
+	public int hashCode() {
+		return fingerprint;
+	}
+
+	// Built with a scan on the first call; every write keeps it up to date from then on
+	@Override
+	public MerkleTree merkleTree() {
+		if (merkle == null) {
+			merkle = MerkleTree.of(this);
+		}
+		return merkle.copy();
+	}
+
+	@Override
+	public boolean maintainsMerkleTree() {
+		return merkle != null;
+	}
+
+	// Moves a row's digest in the Merkle tree, if there is one, as the fingerprint moves
+	private void track(CompactRow removed, CompactRow added) {
+		if (merkle != null) {
+			if (removed != null) {
+				merkle.remove(removed.key(), removed.fields());
+			}
+			if (added != null) {
+				merkle.add(added.key(), added.fields());
+			}
+		}
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if ((obj instanceof Table)) {
+			if (this.hashCode() == obj.hashCode())
+				return true;
+			}
+			return false;
+	}
+
+	@Override
+	public Iterator<Row> iterator() {
+		return new Cursor(head, 0, k -> true);
+	}
+
+	@Override
+	public String name() {
+		return this.name;
+	}
+
+	@Override
+	public List<String> columns() {
+		return this.columns;
+	}
+
+	@Override
+	public String toString() {
+		return toPrettyString();
+	}
+
+	// Descend from the root to the leaf that would hold the key
+	private Leaf findLeaf(String key) {
+		Node node = root;
+		while (node instanceof Inner inner) {
+			node = inner.children[childIndex(inner, key)];
+		}
+		return (Leaf) node;
+	}
+
+	private static int childIndex(Inner inner, String key) {
+		int index = Arrays.binarySearch(inner.keys, 0, inner.count, key);
+		return index >= 0 ? index + 1 : -(index + 1);
+	}
+
+	// Recursive insert of a key known to be absent; returns a split for the parent or null
+	private Split insert(Node node, CompactRow row) {
+		if (node instanceof Leaf leaf) {
+			int index = -(Arrays.binarySearch(leaf.keys, 0, leaf.count, row.key()) + 1);
+			System.arraycopy(leaf.keys, index, leaf.keys, index + 1, leaf.count - index);
+			System.arraycopy(leaf.rows, index, leaf.rows, index + 1, leaf.count - index);
+			leaf.keys[index] = row.key();
+			leaf.rows[index] = row;
+			leaf.count++;
+			return leaf.count > ORDER ? splitLeaf(leaf) : null;
+		}
+
+		Inner inner = (Inner) node;
+		int child = childIndex(inner, row.key());
+		Split split = insert(inner.children[child], row);
+		if (split == null) {
+			return null;
+		}
+
+		// Slot the promoted separator and right sibling in after the child that split
+		System.arraycopy(inner.keys, child, inner.keys, child + 1, inner.count - child);
+		System.arraycopy(inner.children, child + 1, inner.children, child + 2, inner.count - child);
+		inner.keys[child] = split.key();
+		inner.children[child + 1] = split.right();
+		inner.count++;
+		return inner.count > ORDER ? splitInner(inner) : null;
+	}
+
+	private Split splitLeaf(Leaf leaf) {
+		Leaf right = new Leaf();
+		int mid = leaf.count / 2;
+		right.count = leaf.count - mid;
+		System.arraycopy(leaf.keys, mid, right.keys, 0, right.count);
+		System.arraycopy(leaf.rows, mid, right.rows, 0, right.count);
+		Arrays.fill(leaf.keys, mid, leaf.count, null);
+		Arrays.fill(leaf.rows, mid, leaf.count, null);
+		leaf.count = mid;
+
+		// Link the new leaf into the ordered chain
+		right.next = leaf.next;
+		right.prev = leaf;
+		if (leaf.next != null) {
+			leaf.next.prev = right;
+		}
+		leaf.next = right;
+		leaves++;
+
+		return new Split(right.keys[0], right);
+	}
+
+	private Split splitInner(Inner inner) {
+		Inner right = new Inner();
+		int mid = inner.count / 2;
+		String promoted = inner.keys[mid];
+		right.count = inner.count - mid - 1;
+		System.arraycopy(inner.keys, mid + 1, right.keys, 0, right.count);
+		System.arraycopy(inner.children, mid + 1, right.children, 0, right.count + 1);
+		Arrays.fill(inner.keys, mid, inner.count, null);
+		Arrays.fill(inner.children, mid + 1, inner.count + 1, null);
+		inner.count = mid;
+		return new Split(promoted, right);
+	}
+
+	// Walks the leaf chain in key order while the bound accepts each key
+	private class Cursor implements Iterator<Row> {
+		private Leaf leaf;
+		private int currentIndex;
+		private final Predicate<String> bound;
+
+		Cursor(Leaf leaf, int currentIndex, Predicate<String> bound) {
+			this.leaf = leaf;
+			this.currentIndex = currentIndex;
+			this.bound = bound;
+		}
+
+		Cursor(String fromKey, Predicate<String> bound) {
+			this.leaf = findLeaf(fromKey);
+			int index = Arrays.binarySearch(leaf.keys, 0, leaf.count, fromKey);
+			this.currentIndex = index >= 0 ? index : -(index + 1);
+			this.bound = bound;
+		}
+
+		@Override
+		public boolean hasNext() {
+			while (leaf != null && currentIndex >= leaf.count) {
+				leaf = leaf.next;
+				currentIndex = 0;
+			}
+			if (leaf != null && !bound.test(leaf.keys[currentIndex])) {
+				leaf = null;
+			}
+			return leaf != null;
+		}
+
+		@Override
+		public Row next() {
+			if (!hasNext()) {
+				throw new IllegalStateException("No more elements");
+			}
+			return leaf.rows[currentIndex++].toRow();
+		}
+	}
+}
@@ -1,10 +1,13 @@
 package tables;
 
+import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 
 import model.DataTable;
+import model.CompactRow;
 import model.Row;
+import model.Snapshot;
 import model.Table;
 
 public class SymbolTable implements DataTable {
@@ -12,7 +15,7 @@ public class SymbolTable implements DataTable {
 	// Store private data members
 	private String name;
 	private List<String> columns;
-	private Row[] rows;
+	private CompactRow[] rows;
 	private int size;
 	private int fingerprint;
 
@@ -20,12 +23,12 @@ public class SymbolTable implements DataTable {
 	public SymbolTable(String name, List<String> columns) {
 		this.name = name;
 		this.columns = columns;
-		this.rows = new Row[52];
+		this.rows = new CompactRow[52];
 	}
 
 	@Override
 	public void clear() {
-		rows = new Row[52];
+		rows = new CompactRow[52];
 		size = 0;
 		fingerprint = 0;
 	}
@@ -47,20 +50,20 @@ public class SymbolTable implements DataTable {
 		int index = Character.isUpperCase(key.charAt(0)) ? key.charAt(0) - 'A' : key.charAt(0) - 'a' + 26;
 		
 		// Check if the position is already filled
-		Row oldRow = rows[index];
-		Row newRow = new Row(key, fields);
+		CompactRow oldRow = rows[index];
+		CompactRow newRow = new CompactRow(key, fields);
 
 		// If there was already a row, update the fingerprint 
 		// by removing the old one and adding the new one
 		if (oldRow != null) { // Hit
-			fingerprint -= oldRow.hashCode();
+			fingerprint -= oldRow.rowHash();
 			rows[index] = newRow;
-			fingerprint += newRow.hashCode();
+			fingerprint += newRow.rowHash();
 			return oldRow.fields();
 		} else { // Miss
 		// Otherwise, just add the new row
 		rows[index] = newRow;
-		fingerprint += newRow.hashCode();
+		fingerprint += newRow.rowHash();
 		size++;
 		}
 		return null; // Return null if there was no old row
@@ -76,7 +79,7 @@ public class SymbolTable implements DataTable {
 		// Map key to an index
 		int index = Character.isUpperCase(key.charAt(0)) ? key.charAt(0) - 'A' : key.charAt(0) - 'a' + 26;
 
-		Row row = rows[index];
+		CompactRow row = rows[index];
 		return row != null ? row.fields() : null;
 	}
 
@@ -90,9 +93,9 @@ public class SymbolTable implements DataTable {
 		int index = Character.isUpperCase(key.charAt(0)) ? key.charAt(0) - 'A' : key.charAt(0) - 'a' + 26;
 	
 
-		Row row = rows[index];
+		CompactRow row = rows[index];
 		if (row != null) {
-			fingerprint -= row.hashCode();
+			fingerprint -= row.rowHash();
 			rows[index] = null;
 			size--;
 			return row.fields();
@@ -101,6 +104,43 @@ public class SymbolTable implements DataTable {
 		return null;
 	}
 
+	// Writes the 52 slots in one sequential pass
+	public void save(Path file) {
+		try (var out = new Snapshot.Writer(file, "SymbolTable")) {
+			out.writeString(name);
+			out.writeStrings(columns);
+			out.writeInt(size);
+			out.writeInt(fingerprint);
+			for (CompactRow row : rows) {
+				out.writeByte(row == null ? 0 : 1);
+				if (row != null) {
+					out.writeRow(row);
+				}
+			}
+			out.commit();
+		}
+	}
+
+	// Rebuilds a table saved with save(), each row in its old slot
+	public static SymbolTable restore(Path file) {
+		try (var in = new Snapshot.Reader(file, "SymbolTable")) {
+			SymbolTable table = new SymbolTable(in.readString(), in.readStrings());
+			table.size = in.readInt();
+			table.fingerprint = in.readInt();
+			int rows = 0;
+			for (int i = 0; i < table.rows.length; i++) {
+				if (in.readByte() != 0) {
+					table.rows[i] = in.readRow();
+					rows++;
+				}
+			}
+			if (rows != table.size) {
+				throw new IllegalStateException("Corrupt snapshot: " + file);
+			}
+			return table;
+		}
+	}
+
 	@Override
 	public int degree() {
 		return (columns.size()); // 1 indicates the the key
@@ -161,7 +201,7 @@ public class SymbolTable implements DataTable {
 				if (!hasNext()) {
 					throw new IllegalStateException("No more elements");
 				}
-				return rows[currentIndex++];
+				return rows[currentIndex++].toRow();
 			}
 		};
 	}
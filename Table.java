@@ -1,10 +1,17 @@
 package model;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.StringJoiner;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import tables.HashTable;
 
 
@@ -13,7 +20,7 @@ public interface Table extends Iterable<Row> {
 	
     public default DataTable filter(String columnName, Object value) {
         // Find the index of the column in the table
-        int columnIndex = columns().indexOf(columnName);
+        int columnIndex = columnIndex(columnName);
         // Ensure column index is valid
         if (columnIndex == -1) {
             throw new IllegalArgumentException("Column not found");
@@ -47,6 +54,94 @@ public interface Table extends Iterable<Row> {
         return filteredTable;
     }
 
+	// Computes one aggregate over a column in parallel: each worker fills its own
+	// Accumulator and the partials are merged. Implementations that can read a single
+	// column without building Rows override this as a fast path.
+	public default Number aggregate(Aggregate function, String columnName) {
+		int columnIndex = columnIndex(columnName);
+		if (columnIndex == -1) {
+			throw new IllegalArgumentException("Column not found");
+		}
+
+		return StreamSupport.stream(spliterator(), true)
+			.collect(
+				() -> new Accumulator(function),
+				(partial, row) -> partial.add(columnIndex == 0 ? row.key() : row.fields().get(columnIndex - 1)),
+				Accumulator::merge)
+			.result();
+	}
+
+	public default long count(String columnName) {
+		return aggregate(Aggregate.COUNT, columnName).longValue();
+	}
+
+	public default double sum(String columnName) {
+		return aggregate(Aggregate.SUM, columnName).doubleValue();
+	}
+
+	public default Double min(String columnName) {
+		return (Double) aggregate(Aggregate.MIN, columnName);
+	}
+
+	public default Double max(String columnName) {
+		return (Double) aggregate(Aggregate.MAX, columnName);
+	}
+
+	public default Double avg(String columnName) {
+		return (Double) aggregate(Aggregate.AVG, columnName);
+	}
+
+	public default long distinctCount(String columnName) {
+		return aggregate(Aggregate.DISTINCT_COUNT, columnName).longValue();
+	}
+
+	// Groups rows by the values of one or more columns and aggregates a column per group.
+	// The result is keyed by a label of the group values, strings quoted as in CSV so that
+	// distinct groups get distinct labels, e.g. "Callaway", 7; the label is followed by one
+	// column per group column and the aggregate, e.g. | group | Brand | sum(Rating) |
+	public default DataTable groupBy(List<String> groupColumns, Aggregate function, String columnName) {
+		int columnIndex = columnIndex(columnName);
+		int[] groupIndexes = new int[groupColumns.size()];
+		for (int i = 0; i < groupIndexes.length; i++) {
+			groupIndexes[i] = columnIndex(groupColumns.get(i));
+			if (groupIndexes[i] == -1) {
+				throw new IllegalArgumentException("Column not found");
+			}
+		}
+		if (columnIndex == -1 || groupIndexes.length == 0) {
+			throw new IllegalArgumentException("Column not found");
+		}
+
+		// Per-worker maps of group -> partial aggregate, merged group by group
+		Map<List<Object>, Accumulator> groups = StreamSupport.stream(spliterator(), true)
+			.collect(
+				HashMap::new,
+				(partials, row) -> {
+					List<Object> group = new ArrayList<>(groupIndexes.length);
+					for (int index : groupIndexes)
+						group.add(index == 0 ? row.key() : row.fields().get(index - 1));
+					partials.computeIfAbsent(group, g -> new Accumulator(function))
+						.add(columnIndex == 0 ? row.key() : row.fields().get(columnIndex - 1));
+				},
+				(left, right) -> right.forEach((group, partial) -> left.merge(group, partial, Accumulator::merge)));
+
+		List<String> resultColumns = new ArrayList<>();
+		resultColumns.add("group");
+		resultColumns.addAll(groupColumns);
+		resultColumns.add(function.label(columnName));
+
+		var groupedTable = new HashTable((name() + " Grouped"), resultColumns);
+		for (var entry : groups.entrySet()) {
+			StringJoiner key = new StringJoiner(", ");
+			for (Object value : entry.getKey())
+				key.add(value instanceof String string ? "\"" + string.replace("\"", "\"\"") + "\"" : String.valueOf(value));
+			List<Object> fields = new ArrayList<>(entry.getKey());
+			fields.add(entry.getValue().result());
+			groupedTable.put(key.toString(), fields);
+		}
+		return groupedTable;
+	}
+
 
 	
 
@@ -62,6 +157,42 @@ public interface Table extends Iterable<Row> {
 		return get(key) != null;
 	}
 
+	// Puts every row in order, so a key repeated in the batch keeps its last fields.
+	// Implementations override this to write a whole batch in one pass.
+	public default void putAll(Iterable<Row> rows) {
+		for (Row row : rows)
+			put(row.key(), row.fields());
+	}
+
+	public default void putAll(Map<String, List<Object>> rows) {
+		List<Row> batch = new ArrayList<>(rows.size());
+		for (var entry : rows.entrySet())
+			batch.add(new Row(entry.getKey(), entry.getValue()));
+		putAll(batch);
+	}
+
+	// Fields of every key that is present, in the order of the given keys
+	public default Map<String, List<Object>> getAll(Collection<String> keys) {
+		Map<String, List<Object>> found = new LinkedHashMap<>();
+		for (String key : keys) {
+			List<Object> fields = get(key);
+			if (fields != null)
+				found.put(key, fields);
+		}
+		return found;
+	}
+
+	// Removes every given key and returns the fields of those that were present
+	public default Map<String, List<Object>> removeAll(Collection<String> keys) {
+		Map<String, List<Object>> removed = new LinkedHashMap<>();
+		for (String key : keys) {
+			List<Object> fields = remove(key);
+			if (fields != null)
+				removed.put(key, fields);
+		}
+		return removed;
+	}
+
 	public int degree();
 
 	public int size();
@@ -79,40 +210,48 @@ public interface Table extends Iterable<Row> {
 	@Override
 	public Iterator<Row> iterator();
 
-	public String name();
+	// Hierarchical fingerprint for finding which rows differ from another table; built with
+	// a scan unless an implementation keeps one up to date
+	public default MerkleTree merkleTree() {
+		return MerkleTree.of(this);
+	}
 
-	public List<String> columns();
+	// Whether merkleTree() is kept up to date by writes, so asking for it does not scan
+	public default boolean maintainsMerkleTree() {
+		return false;
+	}
 
-	@Override
-	public String toString();
+	// Sequential stream of the rows; file tables read lazily, so close it when done
+	public default Stream<Row> stream() {
+		return StreamSupport.stream(spliterator(), false);
+	}
 
-	public default String toPrettyString() {
-		int[] widths = new int[degree()];
-		for (int i = 0; i < columns().size(); i++)
-			widths[i] = Math.max(widths[i], columns().get(i).length());
-		for (Row row: this) {
-			widths[0] = Math.max(widths[0], row.key().length());
-			for (int i = 0; i < row.fields().size(); i++)
-				widths[i+1] = Math.max(widths[i+1], Objects.requireNonNullElse(row.fields().get(i), "").toString().length());
-		}
+	// Rows with backpressure: read only as subscribers request them, delivered on the
+	// requesting thread
+	public default Flow.Publisher<Row> publisher() {
+		return new RowPublisher(this);
+	}
 
-		StringJoiner head2 = new StringJoiner(" | ", "| ", " |\n");
-		for (int i = 0; i < columns().size(); i++)
-			head2.add(("%-"+widths[i]+"s").formatted(columns().get(i)));
+	// Same, delivering rows on the executor
+	public default Flow.Publisher<Row> publisher(Executor executor) {
+		return new RowPublisher(this, executor);
+	}
 
-		String head1 = ("| %-"+(head2.length()-4)+"s|\n").formatted(name());
+	public String name();
 
-		StringBuilder body = new StringBuilder();
-		for (Row row: this) {
-			StringJoiner current = new StringJoiner(" | ", "| ", " |\n");
-			current.add(("%-"+widths[0]+"s").formatted(row.key()));
-			for (int i = 0; i < row.fields().size(); i++)
-				current.add(("%-"+widths[i+1]+"s").formatted(Objects.requireNonNullElse(row.fields().get(i), ""), widths[i+1]));
-			body.append(current);
-		}
+	public List<String> columns();
+
+	// Index of the column in columns(), or -1; tables with a cached Schema look it up directly
+	public default int columnIndex(String columnName) {
+		return columns().indexOf(columnName);
+	}
 
-		String line = "+" + "-".repeat(head2.length()-3) + "+\n";
+	@Override
+	public String toString();
 
-		return line + head1 + line + head2 + line + body + line;
+	// Rendered by TableRenderer, which can also stream to a Writer, page, or size columns
+	// from a sample
+	public default String toPrettyString() {
+		return TableRenderer.of(this).render();
 	}
 }
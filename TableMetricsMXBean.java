@@ -0,0 +1,36 @@
+package model;
+
+import java.util.Map;
+
+// JMX view of an InstrumentedTable. Maps are keyed by operation name (put, get, ...).
+public interface TableMetricsMXBean {
+	public String getName();
+
+	public Map<String, Long> getCounts();
+
+	public Map<String, Long> getHits();
+
+	public Map<String, Long> getMisses();
+
+	public Map<String, Double> getMeanMicros();
+
+	public Map<String, Double> getP99Micros();
+
+	public Map<String, Double> getMaxMicros();
+
+	public long getBytesRead();
+
+	public long getBytesWritten();
+
+	public double getMeanProbeLength();
+
+	public long getMaxProbeLength();
+
+	public long getRehashes();
+
+	public int getRetainedSnapshots();
+
+	public long getSlowOperations();
+
+	public void reset();
+}
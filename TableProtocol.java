@@ -0,0 +1,240 @@
+package model;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Binary protocol between TableServer and RemoteTable. Every message is a frame: an int
+// length followed by that many bytes. A request is an opcode followed by its arguments, a
+// response a status followed by its result. Responses come back in request order, so a
+// client can pipeline requests without ids. Strings are an int byte length and UTF-8;
+// fields are an int count (-1 for none) and tagged values, with the same tags as Snapshot.
+// A scan is answered with chunks of rows, the last of them empty.
+final class TableProtocol {
+	static final byte OPEN = 1;
+	static final byte PUT = 2;
+	static final byte GET = 3;
+	static final byte REMOVE = 4;
+	static final byte PUT_ALL = 5;
+	static final byte GET_ALL = 6;
+	static final byte REMOVE_ALL = 7;
+	static final byte SIZE = 8;
+	static final byte HASH = 9;
+	static final byte CLEAR = 10;
+	static final byte SCAN = 11;
+	static final byte MERKLE = 12;
+
+	static final byte OK = 0;
+	static final byte BAD_REQUEST = 1; // IllegalArgumentException on the server
+	static final byte FAILED = 2;
+
+	// Refuse frames larger than this rather than allocating for a corrupt length
+	static final int MAX_FRAME = 64 << 20;
+
+	private TableProtocol() {
+	}
+
+	static String readString(ByteBuffer in) {
+		int length = in.getInt();
+		if (length < 0 || length > in.remaining()) {
+			throw new IllegalArgumentException("Bad string length " + length + ".");
+		}
+		String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+		in.position(in.position() + length);
+		return value;
+	}
+
+	static List<String> readStrings(ByteBuffer in) {
+		int count = readCount(in, 4);
+		List<String> values = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			values.add(readString(in));
+		return values;
+	}
+
+	static List<Object> readFields(ByteBuffer in) {
+		int count = in.getInt();
+		if (count == -1) {
+			return null;
+		}
+		checkCount(in, count, 1);
+		List<Object> fields = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			byte type = in.get();
+			fields.add(switch (type) {
+				case Snapshot.NULL -> null;
+				case Snapshot.STRING -> readString(in);
+				case Snapshot.INTEGER -> in.getInt();
+				case Snapshot.DOUBLE -> in.getDouble();
+				case Snapshot.BOOLEAN -> in.get() != 0;
+				default -> throw new IllegalStateException("Unknown field type " + type);
+			});
+		}
+		return fields;
+	}
+
+	// A count of items each at least minBytes long; checked against the rest of the frame
+	// before anything is allocated for it, so a bad count cannot exhaust the heap
+	static int readCount(ByteBuffer in, int minBytes) {
+		int count = in.getInt();
+		checkCount(in, count, minBytes);
+		return count;
+	}
+
+	private static void checkCount(ByteBuffer in, int count, int minBytes) {
+		if (count < 0 || count > in.remaining() / minBytes) {
+			throw new IllegalArgumentException("Bad count " + count + ".");
+		}
+	}
+
+	// Growable buffer that frames are encoded into before they are written to a channel
+	static final class Output {
+		private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+		private int frameStart = -1;
+
+		void begin() {
+			ensure(4);
+			frameStart = buffer.position();
+			buffer.position(frameStart + 4);
+		}
+
+		void end() {
+			buffer.putInt(frameStart, buffer.position() - frameStart - 4);
+			frameStart = -1;
+		}
+
+		// Drops the frame begun last, e.g. to replace a half-written result with an error
+		void abort() {
+			buffer.position(frameStart);
+			frameStart = -1;
+		}
+
+		int size() {
+			return buffer.position();
+		}
+
+		boolean isEmpty() {
+			return buffer.position() == 0;
+		}
+
+		void writeByte(int value) {
+			ensure(1);
+			buffer.put((byte) value);
+		}
+
+		void writeInt(int value) {
+			ensure(4);
+			buffer.putInt(value);
+		}
+
+		void writeLong(long value) {
+			ensure(8);
+			buffer.putLong(value);
+		}
+
+		void writeString(String value) {
+			byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+			ensure(4 + bytes.length);
+			buffer.putInt(bytes.length).put(bytes);
+		}
+
+		void writeStrings(List<String> values) {
+			writeInt(values.size());
+			for (String value : values)
+				writeString(value);
+		}
+
+		void writeFields(List<Object> fields) {
+			if (fields == null) {
+				writeInt(-1);
+				return;
+			}
+			writeInt(fields.size());
+			for (Object field : fields) {
+				if (field == null) {
+					writeByte(Snapshot.NULL);
+				} else if (field instanceof String string) {
+					writeByte(Snapshot.STRING);
+					writeString(string);
+				} else if (field instanceof Integer integer) {
+					ensure(5);
+					buffer.put(Snapshot.INTEGER).putInt(integer);
+				} else if (field instanceof Double number) {
+					ensure(9);
+					buffer.put(Snapshot.DOUBLE).putDouble(number);
+				} else if (field instanceof Boolean bool) {
+					ensure(2);
+					buffer.put(Snapshot.BOOLEAN).put((byte) (bool ? 1 : 0));
+				} else {
+					throw new IllegalArgumentException("Cannot send field of type " + field.getClass().getName());
+				}
+			}
+		}
+
+		void writeRow(String key, List<Object> fields) {
+			writeString(key);
+			writeFields(fields);
+		}
+
+		// Writes what the channel accepts and keeps the rest; returns whether anything is left
+		boolean writeTo(WritableByteChannel channel) throws IOException {
+			buffer.flip();
+			channel.write(buffer);
+			buffer.compact();
+			return buffer.position() > 0;
+		}
+
+		private void ensure(int bytes) {
+			if (buffer.remaining() < bytes) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+				buffer.flip();
+				grown.put(buffer);
+				buffer = grown;
+			}
+		}
+	}
+
+	// Reads whole frames off a channel, keeping any bytes of the next frame that came along
+	static final class Input {
+		private ByteBuffer buffer = ByteBuffer.allocate(1 << 16).flip();
+
+		// Next complete frame already buffered, or null
+		ByteBuffer frame() {
+			if (buffer.remaining() < 4) {
+				return null;
+			}
+			int length = buffer.getInt(buffer.position());
+			if (length < 0 || length > MAX_FRAME) {
+				throw new IllegalStateException("Invalid frame length " + length);
+			}
+			if (buffer.remaining() < 4 + length) {
+				return null;
+			}
+			ByteBuffer frame = buffer.slice(buffer.position() + 4, length);
+			buffer.position(buffer.position() + 4 + length);
+			return frame;
+		}
+
+		// Reads what is available, making room for the pending frame; returns -1 at end of stream.
+		// Frames returned earlier must have been consumed, as their bytes may be moved.
+		int readFrom(ReadableByteChannel channel) throws IOException {
+			int needed = buffer.remaining() >= 4 ? 4 + buffer.getInt(buffer.position()) : 4;
+			if (needed > buffer.capacity()) {
+				ByteBuffer grown = ByteBuffer.allocate(Math.min(Math.max(buffer.capacity() * 2, needed), MAX_FRAME + 4));
+				grown.put(buffer);
+				buffer = grown;
+			} else {
+				buffer.compact();
+			}
+			try {
+				return channel.read(buffer);
+			} finally {
+				buffer.flip();
+			}
+		}
+	}
+}
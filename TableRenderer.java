@@ -0,0 +1,173 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+// Writes the boxed text layout of toPrettyString() to any Appendable, padding cells by hand.
+// By default column widths fit every rendered row, which takes a second pass over the table
+// unless a page limit bounds the rows to buffer. With sampleWidths or widths the table is
+// read once and cells wider than their column are cut short and end in '~'.
+//
+//   TableRenderer.of(table).page(100, 20).renderTo(System.out);
+public class TableRenderer {
+	private final Table table;
+	private long offset = 0;
+	private long limit = Long.MAX_VALUE;
+	private int sampleRows = -1;
+	private int[] fixedWidths;
+
+	private TableRenderer(Table table) {
+		this.table = table;
+	}
+
+	public static TableRenderer of(Table table) {
+		return new TableRenderer(table);
+	}
+
+	// Renders only the rows from offset, at most limit of them, in iteration order
+	public TableRenderer page(long offset, long limit) {
+		if (offset < 0 || limit < 0) {
+			throw new IllegalArgumentException("Offset and limit cannot be negative.");
+		}
+		this.offset = offset;
+		this.limit = limit;
+		return this;
+	}
+
+	// Sizes the columns from the first rows rendered instead of all of them
+	public TableRenderer sampleWidths(int rows) {
+		if (rows < 1) {
+			throw new IllegalArgumentException("Sample must have at least one row.");
+		}
+		this.sampleRows = rows;
+		this.fixedWidths = null;
+		return this;
+	}
+
+	// Uses known widths, such as the longest values from column statistics; each column is
+	// still at least as wide as its name
+	public TableRenderer widths(int... widths) {
+		if (widths.length != table.degree()) {
+			throw new IllegalArgumentException("Amount of widths do not match the degree.");
+		}
+		this.fixedWidths = widths.clone();
+		this.sampleRows = -1;
+		return this;
+	}
+
+	public String render() {
+		StringBuilder out = new StringBuilder();
+		renderTo(out);
+		return out.toString();
+	}
+
+	public void renderTo(Appendable out) {
+		List<String> columns = table.columns();
+		int[] widths = new int[columns.size()];
+		for (int i = 0; i < widths.length; i++)
+			widths[i] = Math.max(columns.get(i).length(), fixedWidths == null ? 0 : fixedWidths[i]);
+
+		boolean exact = fixedWidths == null && sampleRows == -1;
+		try {
+			if (exact && limit == Long.MAX_VALUE) {
+				// First pass only measures
+				try (Stream<Row> rows = page()) {
+					rows.forEach(row -> widen(widths, row));
+				}
+			}
+
+			try (Stream<Row> rows = page()) {
+				Iterator<Row> iterator = rows.iterator();
+
+				// Rows that size the columns are held until the header can be written
+				int buffer = fixedWidths != null ? 0
+					: sampleRows != -1 ? sampleRows
+					: limit == Long.MAX_VALUE ? 0 : (int) Math.min(limit, Integer.MAX_VALUE);
+				List<Row> buffered = new ArrayList<>(Math.min(buffer, 1024));
+				while (buffered.size() < buffer && iterator.hasNext()) {
+					Row row = iterator.next();
+					widen(widths, row);
+					buffered.add(row);
+				}
+
+				writeHeader(out, columns, widths);
+				for (Row row : buffered)
+					writeRow(out, row, widths);
+				while (iterator.hasNext())
+					writeRow(out, iterator.next(), widths);
+				writeLine(out, widths);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private Stream<Row> page() {
+		return table.stream().skip(offset).limit(limit);
+	}
+
+	private static void widen(int[] widths, Row row) {
+		widths[0] = Math.max(widths[0], row.key().length());
+		for (int i = 0; i < row.fields().size(); i++)
+			widths[i + 1] = Math.max(widths[i + 1], cell(row.fields().get(i)).length());
+	}
+
+	private static String cell(Object field) {
+		return field == null ? "" : field.toString();
+	}
+
+	private void writeHeader(Appendable out, List<String> columns, int[] widths) throws IOException {
+		writeLine(out, widths);
+		out.append("| ");
+		pad(out, table.name(), innerWidth(widths) - 1, false);
+		out.append("|\n");
+		writeLine(out, widths);
+		out.append("| ");
+		for (int i = 0; i < columns.size(); i++) {
+			if (i > 0)
+				out.append(" | ");
+			pad(out, columns.get(i), widths[i], false);
+		}
+		out.append(" |\n");
+		writeLine(out, widths);
+	}
+
+	private void writeRow(Appendable out, Row row, int[] widths) throws IOException {
+		out.append("| ");
+		pad(out, row.key(), widths[0], true);
+		for (int i = 0; i < row.fields().size(); i++) {
+			out.append(" | ");
+			pad(out, cell(row.fields().get(i)), widths[i + 1], true);
+		}
+		out.append(" |\n");
+	}
+
+	private static void writeLine(Appendable out, int[] widths) throws IOException {
+		out.append('+');
+		for (int i = innerWidth(widths); i > 0; i--)
+			out.append('-');
+		out.append("+\n");
+	}
+
+	// Characters between the corner pluses
+	private static int innerWidth(int[] widths) {
+		int total = 3 * widths.length - 1;
+		for (int width : widths)
+			total += width;
+		return total;
+	}
+
+	private static void pad(Appendable out, String value, int width, boolean cut) throws IOException {
+		if (cut && value.length() > width) {
+			out.append(value, 0, Math.max(0, width - 1)).append('~');
+			return;
+		}
+		out.append(value);
+		for (int i = value.length(); i < width; i++)
+			out.append(' ');
+	}
+}
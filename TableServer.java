@@ -0,0 +1,321 @@
+package model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import tables.HashTable;
+
+// Serves tables to other processes on the same machine over a loopback TCP port or a
+// Unix-domain socket, using TableProtocol. One selector thread accepts connections, reads
+// requests and applies them, so the hosted tables are only ever used by that thread and
+// need not be thread-safe. A client may pipeline any number of requests; the server
+// answers them in order. Scans are sent a chunk at a time as the client reads them, and
+// writes from other connections carry on meanwhile: a HashTable is scanned through a
+// snapshot view and any other table is copied when the scan starts, so a scan never sees
+// a write that came after it.
+//
+//   var server = new TableServer().host(table);
+//   server.start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 7070));
+//   var remote = RemoteTable.connect(server.address(), table.name());
+public class TableServer implements AutoCloseable {
+
+	// Rows per scan chunk, and bytes of pending output before no more rows are encoded
+	private static final int SCAN_CHUNK = 1024;
+	private static final int SCAN_OUTPUT_LIMIT = 1 << 16;
+
+	private final Map<String, Table> tables = new ConcurrentHashMap<>();
+	private ServerSocketChannel server;
+	private Selector selector;
+	private Thread thread;
+	private volatile boolean running;
+
+	// Makes the table available to clients under its name
+	public TableServer host(Table table) {
+		tables.put(table.name(), table);
+		return this;
+	}
+
+	// Binds to the address and serves on a daemon thread; port 0 picks a free port
+	public TableServer start(SocketAddress address) {
+		try {
+			if (address instanceof UnixDomainSocketAddress unix) {
+				Files.deleteIfExists(unix.getPath());
+				server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+			} else {
+				server = ServerSocketChannel.open();
+			}
+			server.bind(address);
+			server.configureBlocking(false);
+			selector = Selector.open();
+			server.register(selector, SelectionKey.OP_ACCEPT);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		running = true;
+		thread = new Thread(this::serve, "table-server");
+		thread.setDaemon(true);
+		thread.start();
+		return this;
+	}
+
+	public SocketAddress address() {
+		try {
+			return server.getLocalAddress();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		running = false;
+		selector.wakeup();
+		try {
+			thread.join();
+			SocketAddress address = server.getLocalAddress();
+			for (SelectionKey key : selector.keys())
+				key.channel().close();
+			selector.close();
+			if (address instanceof UnixDomainSocketAddress unix) {
+				Files.deleteIfExists(unix.getPath());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void serve() {
+		while (running) {
+			try {
+				selector.select();
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			for (Iterator<SelectionKey> it = selector.selectedKeys().iterator(); it.hasNext();) {
+				SelectionKey key = it.next();
+				it.remove();
+				if (!key.isValid()) {
+					continue;
+				}
+				if (key.isAcceptable()) {
+					accept();
+				} else {
+					var connection = (Connection) key.attachment();
+					try {
+						if (key.isReadable()) {
+							connection.read();
+						}
+						if (key.isValid() && key.isWritable()) {
+							connection.write();
+						}
+					} catch (IOException | RuntimeException e) {
+						// A broken or misbehaving client only loses its own connection
+						connection.close();
+					}
+				}
+			}
+		}
+	}
+
+	private void accept() {
+		try {
+			SocketChannel channel = server.accept();
+			if (channel == null) {
+				return;
+			}
+			channel.configureBlocking(false);
+			if (channel.getLocalAddress() instanceof InetSocketAddress) {
+				channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+			}
+			SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+			key.attach(new Connection(channel, key));
+		} catch (IOException e) {
+			// The client gave up before it was accepted
+		}
+	}
+
+	private final class Connection {
+		private final SocketChannel channel;
+		private final SelectionKey key;
+		private final TableProtocol.Input in = new TableProtocol.Input();
+		private final TableProtocol.Output out = new TableProtocol.Output();
+		private Table table;
+		private Iterator<Row> scan;
+		private HashTable.ReadView scanView;
+
+		Connection(SocketChannel channel, SelectionKey key) {
+			this.channel = channel;
+			this.key = key;
+		}
+
+		void read() throws IOException {
+			if (in.readFrom(channel) == -1) {
+				close();
+				return;
+			}
+			process();
+		}
+
+		void write() throws IOException {
+			out.writeTo(channel);
+			process();
+		}
+
+		// Answers buffered requests until one starts a scan, which then has to finish first
+		private void process() throws IOException {
+			while (true) {
+				if (scan != null) {
+					if (out.size() >= SCAN_OUTPUT_LIMIT) {
+						break;
+					}
+					sendChunk();
+					continue;
+				}
+				ByteBuffer frame = in.frame();
+				if (frame == null) {
+					break;
+				}
+				handle(frame);
+			}
+			if (!out.isEmpty()) {
+				out.writeTo(channel);
+			}
+			// Stop reading requests while a scan is pending, so a slow reader cannot pile them up
+			key.interestOps((scan == null ? SelectionKey.OP_READ : 0)
+				| (out.isEmpty() && scan == null ? 0 : SelectionKey.OP_WRITE));
+		}
+
+		private void handle(ByteBuffer request) {
+			byte op = request.get();
+			out.begin();
+			try {
+				if (op != TableProtocol.OPEN && table == null) {
+					throw new IllegalStateException("No table is open.");
+				}
+				out.writeByte(TableProtocol.OK);
+				switch (op) {
+					case TableProtocol.OPEN -> {
+						String name = TableProtocol.readString(request);
+						table = tables.get(name);
+						if (table == null) {
+							throw new IllegalArgumentException("No table named " + name + ".");
+						}
+						out.writeString(table.name());
+						out.writeStrings(table.columns());
+					}
+					case TableProtocol.PUT -> out.writeFields(table.put(TableProtocol.readString(request),
+						TableProtocol.readFields(request)));
+					case TableProtocol.GET -> out.writeFields(table.get(TableProtocol.readString(request)));
+					case TableProtocol.REMOVE -> out.writeFields(table.remove(TableProtocol.readString(request)));
+					case TableProtocol.PUT_ALL -> {
+						int count = TableProtocol.readCount(request, 8); // key length and field count
+						List<Row> rows = new ArrayList<>(count);
+						for (int i = 0; i < count; i++)
+							rows.add(new Row(TableProtocol.readString(request), TableProtocol.readFields(request)));
+						table.putAll(rows);
+					}
+					case TableProtocol.GET_ALL -> writeMap(table.getAll(TableProtocol.readStrings(request)));
+					case TableProtocol.REMOVE_ALL -> writeMap(table.removeAll(TableProtocol.readStrings(request)));
+					case TableProtocol.SIZE -> out.writeInt(table.size());
+					case TableProtocol.HASH -> out.writeInt(table.hashCode());
+					case TableProtocol.MERKLE -> {
+						long[] buckets = table.merkleTree().buckets();
+						out.writeInt(buckets.length);
+						for (long bucket : buckets)
+							out.writeLong(bucket);
+					}
+					case TableProtocol.CLEAR -> table.clear();
+					case TableProtocol.SCAN -> {
+						// Chunks follow as separate frames
+						out.abort();
+						if (table instanceof HashTable hash) {
+							scanView = hash.snapshot();
+							scan = scanView.iterator();
+						} else {
+							List<Row> rows = new ArrayList<>();
+							table.forEach(rows::add);
+							scan = rows.iterator();
+						}
+						return;
+					}
+					default -> throw new IllegalArgumentException("Unknown request " + op + ".");
+				}
+				out.end();
+			} catch (RuntimeException e) {
+				out.abort();
+				error(e);
+			}
+		}
+
+		// One chunk of up to SCAN_CHUNK rows; the empty chunk after the last row ends the scan
+		private void sendChunk() {
+			out.begin();
+			try {
+				out.writeByte(TableProtocol.OK);
+				List<Row> rows = new ArrayList<>();
+				while (rows.size() < SCAN_CHUNK && scan.hasNext())
+					rows.add(scan.next());
+				out.writeInt(rows.size());
+				for (Row row : rows)
+					out.writeRow(row.key(), row.fields());
+				out.end();
+				if (rows.isEmpty()) {
+					endScan();
+				}
+			} catch (RuntimeException e) {
+				out.abort();
+				endScan();
+				error(e);
+			}
+		}
+
+		private void endScan() {
+			scan = null;
+			if (scanView != null) {
+				scanView.close();
+				scanView = null;
+			}
+		}
+
+		private void writeMap(Map<String, List<Object>> rows) {
+			out.writeInt(rows.size());
+			for (var entry : rows.entrySet())
+				out.writeRow(entry.getKey(), entry.getValue());
+		}
+
+		private void error(RuntimeException e) {
+			out.begin();
+			out.writeByte(e instanceof IllegalArgumentException ? TableProtocol.BAD_REQUEST : TableProtocol.FAILED);
+			out.writeString(String.valueOf(e.getMessage()));
+			out.end();
+		}
+
+		void close() {
+			endScan();
+			key.cancel();
+			try {
+				channel.close();
+			} catch (IOException e) {
+				// Already gone
+			}
+		}
+	}
+}
@@ -0,0 +1,94 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+// Brings one table in line with another through their Merkle trees. The trees narrow the
+// work down to the buckets that differ; only rows in those buckets are compared, and only
+// rows that actually differ are written to the target or removed from it. The tables may
+// be of any implementation, e.g. a CSVTable copied into a BinaryTable last week.
+// A table that keeps its tree up to date is read once, and only if its tree differs; the
+// tree of any other table is built with one scan that also keeps its rows for the compare.
+//
+//   var differing = TableSync.diff(left, right);   // buckets, empty when the tables match
+//   var result = TableSync.sync(source, target);   // target now holds exactly source's rows
+public final class TableSync {
+
+	public record Result(int differingBuckets, int rowsPut, int rowsRemoved) {}
+
+	private TableSync() {
+	}
+
+	public static BitSet diff(Table left, Table right) {
+		return left.merkleTree().diff(right.merkleTree());
+	}
+
+	public static Result sync(Table source, Table target) {
+		if (source.degree() != target.degree()) {
+			throw new IllegalArgumentException("Amount of fields do not match the degree.");
+		}
+		Side from = new Side(source);
+		Side to = new Side(target);
+		BitSet buckets = from.tree.diff(to.tree);
+		if (buckets.isEmpty()) {
+			return new Result(0, 0, 0);
+		}
+
+		// Source rows in the differing buckets; those the target already has are dropped below
+		Map<String, List<Object>> changed = new HashMap<>();
+		from.forEachIn(buckets, row -> changed.put(row.key(), row.fields()));
+
+		List<String> removed = new ArrayList<>();
+		to.forEachIn(buckets, row -> {
+			if (!changed.containsKey(row.key())) {
+				removed.add(row.key());
+			} else if (Objects.equals(changed.get(row.key()), row.fields())) {
+				changed.remove(row.key());
+			}
+		});
+
+		// Written after both tables were read, since a file table cannot be changed while it is read
+		target.removeAll(removed);
+		target.putAll(changed);
+		return new Result(buckets.cardinality(), changed.size(), removed.size());
+	}
+
+	// A table's Merkle tree, plus its rows by bucket when the tree had to be built with a scan
+	private static final class Side {
+		private final Table table;
+		private final MerkleTree tree;
+		private final Map<Integer, List<Row>> scanned;
+
+		private Side(Table table) {
+			this.table = table;
+			if (table.maintainsMerkleTree()) {
+				tree = table.merkleTree();
+				scanned = null;
+			} else {
+				tree = new MerkleTree(MerkleTree.DEFAULT_DEPTH);
+				scanned = new HashMap<>();
+				for (Row row : table) {
+					tree.add(row.key(), row.fields());
+					scanned.computeIfAbsent(tree.bucketOf(row.key()), bucket -> new ArrayList<>()).add(row);
+				}
+			}
+		}
+
+		// Rows in the given buckets, from the scan above or else read from the table now
+		private void forEachIn(BitSet buckets, Consumer<Row> action) {
+			if (scanned != null) {
+				for (int bucket = buckets.nextSetBit(0); bucket >= 0; bucket = buckets.nextSetBit(bucket + 1))
+					scanned.getOrDefault(bucket, List.of()).forEach(action);
+			} else {
+				for (Row row : table)
+					if (buckets.get(tree.bucketOf(row.key())))
+						action.accept(row);
+			}
+		}
+	}
+}
@@ -0,0 +1,73 @@
+package apps;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.ColumnType;
+import model.DataTable;
+import tables.ColumnarTable;
+import tables.HashTable;
+
+// Compares heap footprint and column scans of ColumnarTable against HashTable. Run with
+// -prof gc: gc.alloc.rate.norm of load, per row, is an upper bound of the footprint, since
+// it also counts the garbage the puts leave behind.
+//
+//   java -jar jmh/target/benchmarks.jar ColumnarTableBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ColumnarTableBenchmark {
+	private static final int ROWS = 1000;
+	private static final List<String> COLUMNS = List.of("key", "brand", "distance", "rating", "owned");
+	private static final List<String> BRANDS = List.of("Taylor Made", "Callaway", "Titleist", "Ping");
+
+	@Param({"HashTable", "ColumnarTable"})
+	public String kind;
+
+	private DataTable table;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		table = load();
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public DataTable load() {
+		DataTable table = kind.equals("HashTable")
+			? new HashTable("bench", COLUMNS)
+			: new ColumnarTable("bench", COLUMNS, List.of(ColumnType.STRING, ColumnType.STRING, ColumnType.INTEGER, ColumnType.DOUBLE, ColumnType.BOOLEAN));
+		for (int i = 0; i < ROWS; i++)
+			table.put("club" + i, List.of(BRANDS.get(i % BRANDS.size()), 100 + i % 150, (i % 10) / 2.0, i % 3 == 0));
+		return table;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public double sum() {
+		return table.sum("distance");
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public DataTable filter() {
+		return table.filter("brand", "Callaway");
+	}
+}
@@ -0,0 +1,130 @@
+package apps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.Aggregate;
+import model.FileTable;
+import model.Row;
+import tables.BinaryTable;
+import tables.CSVTable;
+
+// File tables stored raw and block compressed: time for a load, a full scan and a
+// single-column aggregate, plus size(), which a compressed CSV table answers from its
+// frame headers. Bytes on disk are printed once per trial. BinaryTable writes one file
+// per row, so it gets a tenth of the rows.
+//
+//   java -jar jmh/target/benchmarks.jar CompressionBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CompressionBenchmark {
+	private static final int CSV_ROWS = 50_000;
+	private static final int BINARY_ROWS = 5_000;
+
+	private static final List<String> BRANDS = List.of("Taylor Made", "Callaway", "Titleist", "Ping");
+	private static final List<String> GENRES = List.of("FPS", "Battle Royale", "Role Playing", "Strategy");
+
+	@Param({"CSVTable", "BinaryTable"})
+	public String kind;
+
+	@Param({"false", "true"})
+	public boolean compressed;
+
+	private FileTable table;
+	private List<Row> rows;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var columns = List.of("key", "name", "brand", "genre", "count", "rating");
+		int count = kind.equals("CSVTable") ? CSV_ROWS : BINARY_ROWS;
+		rows = new ArrayList<>(count);
+		for (int i = 0; i < count; i++)
+			rows.add(new Row("key" + i, List.of("name" + i, BRANDS.get(i % BRANDS.size()),
+				GENRES.get(i / 5 % GENRES.size()), i, i % 100 / 10.0)));
+
+		String name = "bench_compression" + (compressed ? "_on" : "");
+		if (kind.equals("CSVTable")) {
+			var csv = new CSVTable(name, columns);
+			table = compressed ? csv.blockCompression() : csv;
+		} else {
+			var binary = new BinaryTable(name, columns);
+			binary.clear();
+			table = compressed ? binary.blockCompression() : binary;
+		}
+		table.load(rows.iterator());
+		long bytes = bytesOnDisk(table.path());
+		System.out.printf("%-40s %12d B on disk %9.1f B/row%n", kind + (compressed ? " compressed" : " raw"),
+			bytes, (double) bytes / count);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		table.close();
+		TableBenchmark.delete(table.path());
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 3)
+	public void load() {
+		table.load(rows.iterator());
+	}
+
+	@Benchmark
+	public void scan(Blackhole blackhole) {
+		try (Stream<Row> scan = table.stream()) {
+			scan.forEach(row -> blackhole.consume(row.key()));
+		}
+	}
+
+	@Benchmark
+	public Number sum() {
+		return table.aggregate(Aggregate.SUM, "count");
+	}
+
+	@Benchmark
+	public int size() {
+		return table.size();
+	}
+
+	private static long bytesOnDisk(Path path) {
+		try (Stream<Path> files = Files.walk(path)) {
+			return files.filter(Files::isRegularFile).mapToLong(file -> {
+				try {
+					return Files.size(file);
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}).sum();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
@@ -0,0 +1,90 @@
+package apps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.DataTable;
+import tables.DenseTable;
+import tables.HashTable;
+import tables.SymbolTable;
+
+// Sparse iteration of DenseTable's bitmap against SymbolTable's slot walk, with 3 of 52
+// letters in use, and status-code lookups in a DenseTable range domain against HashTable,
+// with every tenth code of 500 in use. get and put do one key per call; iterate walks the
+// whole table.
+//
+//   java -jar jmh/target/benchmarks.jar DenseTableBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DenseTableBenchmark {
+	private static final List<String> COLUMNS = List.of("key", "name", "count");
+	private static final List<Object> FIELDS = List.of("value", 1);
+
+	@Param({"SymbolTable", "DenseTableLetters", "HashTable", "DenseTableRange"})
+	public String kind;
+
+	private DataTable table;
+	private String[] keys;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		List<String> codes = new ArrayList<>();
+		for (int code = 100; code < 600; code += 10)
+			codes.add(String.valueOf(code));
+		List<String> letters = List.of("C", "q", "z");
+
+		table = switch (kind) {
+			case "SymbolTable" -> new SymbolTable("bench", COLUMNS);
+			case "DenseTableLetters" -> new DenseTable("bench", COLUMNS, DenseTable.KeyDomain.letters());
+			case "HashTable" -> new HashTable("bench", COLUMNS);
+			case "DenseTableRange" -> new DenseTable("bench", COLUMNS, DenseTable.KeyDomain.range(100, 599));
+			default -> throw new IllegalArgumentException("Unknown table: " + kind);
+		};
+		boolean statusCodes = kind.equals("HashTable") || kind.equals("DenseTableRange");
+		keys = (statusCodes ? codes : letters).toArray(String[]::new);
+		for (String key : keys)
+			table.put(key, FIELDS);
+	}
+
+	@Benchmark
+	public List<Object> get() {
+		return table.get(keys[next()]);
+	}
+
+	@Benchmark
+	public List<Object> put() {
+		return table.put(keys[next()], FIELDS);
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (var row : table)
+			blackhole.consume(row.key());
+	}
+
+	private int next() {
+		int i = next;
+		next = i + 1 == keys.length ? 0 : i + 1;
+		return i;
+	}
+}
@@ -0,0 +1,151 @@
+package apps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.FileTable;
+import model.Row;
+import tables.BinaryTable;
+import tables.CSVTable;
+
+// Low-cardinality string columns, like the brands and genres of the Sandbox data, stored
+// plain and dictionary encoded: time per scanned row, plus, printed once per trial, bytes
+// on disk, bytes read per scanned row, and the heap held by the strings of decoded rows
+// against a private copy of each value, as decoding made before interning
+//
+//   java -jar jmh/target/benchmarks.jar DictionaryBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 2, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DictionaryBenchmark {
+	private static final int ROWS = 10_000;
+
+	private static final List<String> BRANDS = List.of("Taylor Made", "Callaway", "Titleist", "Ping",
+		"Cobra", "Mizuno", "Srixon", "Cleveland");
+	private static final List<String> PLATFORMS = List.of("PC", "PS4 and PC", "Xbox and PC", "Nintendo Switch");
+	private static final List<String> GENRES = List.of("FPS", "Battle Royale", "Role Playing", "Strategy",
+		"Sports", "Platformer");
+
+	@Param({"CSVTable", "BinaryTable"})
+	public String kind;
+
+	@Param({"false", "true"})
+	public boolean encoded;
+
+	private FileTable table;
+	private long bytesRead;
+	private long scans;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var columns = List.of("key", "brand", "platform", "genre", "count");
+		List<Row> rows = new ArrayList<>(ROWS);
+		for (int i = 0; i < ROWS; i++)
+			rows.add(new Row("key" + i, List.of(BRANDS.get(i % BRANDS.size()),
+				PLATFORMS.get(i / 3 % PLATFORMS.size()), GENRES.get(i / 7 % GENRES.size()), i)));
+
+		String name = "bench_dictionary" + (encoded ? "_encoded" : "");
+		if (kind.equals("CSVTable")) {
+			var csv = new CSVTable(name, columns);
+			table = encoded ? csv.dictionaryEncoding() : csv;
+		} else {
+			var binary = new BinaryTable(name, columns);
+			table = encoded ? binary.dictionaryEncoding() : binary;
+		}
+		table.load(rows.iterator());
+		bytesRead = table.bytesRead();
+		printStrings();
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		System.out.printf("%-40s %12d B on disk %9.1f B read/row%n", label(), bytesOnDisk(table),
+			(double) (table.bytesRead() - bytesRead) / (scans * ROWS));
+		table.close();
+		TableBenchmark.delete(table.path());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void scan(Blackhole blackhole) {
+		for (Row row : table)
+			blackhole.consume(row.key());
+		scans++;
+	}
+
+	private String label() {
+		return kind + (encoded ? " dictionary" : " plain");
+	}
+
+	private void printStrings() {
+		Set<Object> distinct = Collections.newSetFromMap(new IdentityHashMap<>());
+		long shared = 0;
+		long copied = 0;
+		for (Row row : table)
+			for (Object field : row.fields())
+				if (field instanceof String string) {
+					copied += stringBytes(string);
+					if (distinct.add(string)) {
+						shared += stringBytes(string);
+					}
+				}
+		System.out.printf("%-40s %12.1f B/row strings %8.1f B/row copied%n", label(),
+			(double) shared / ROWS, (double) copied / ROWS);
+	}
+
+	// Heap size of a Latin-1 string on a 64-bit JVM with compressed pointers: the String
+	// object and its byte[], each padded to 8 bytes
+	private static long stringBytes(String string) {
+		return 24 + (16 + string.length() + 7) / 8 * 8;
+	}
+
+	// Row storage plus the dictionary file
+	private static long bytesOnDisk(FileTable table) {
+		Path path = table.path();
+		if (Files.isRegularFile(path)) {
+			Path dictionary = path.resolveSibling(table.name() + ".dict");
+			return size(path) + (Files.exists(dictionary) ? size(dictionary) : 0);
+		}
+		try (Stream<Path> files = Files.walk(path)) {
+			return files.filter(Files::isRegularFile).mapToLong(DictionaryBenchmark::size).sum();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	private static long size(Path path) {
+		try {
+			return Files.size(path);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
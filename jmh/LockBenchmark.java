@@ -0,0 +1,84 @@
+package apps;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.ThreadParams;
+
+import model.FileTable;
+import model.LockedTable;
+import tables.BinaryTable;
+import tables.JSONTable;
+
+// Read scaling of LockedTable: threads doing gets share the read lock, so throughput should
+// grow with the thread count up to the number of cores. Run once per thread count; a run
+// with one thread is the baseline.
+//
+//   java -jar jmh/target/benchmarks.jar LockBenchmark -t 1   (then -t 2, -t 4, -t 8)
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class LockBenchmark {
+	@Param({"JSONTable", "BinaryTable"})
+	public String kind;
+
+	@Param("2000")
+	public int rows;
+
+	private FileTable source;
+	private FileTable table;
+
+	// Each thread walks the keys from its own offset
+	@State(Scope.Thread)
+	public static class Cursor {
+		private int next;
+
+		@Setup(Level.Trial)
+		public void setUp(ThreadParams thread) {
+			next = thread.getThreadIndex();
+		}
+	}
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var columns = List.of("key", "name", "count");
+		source = kind.equals("JSONTable") ? new JSONTable("bench_lock", columns) : new BinaryTable("bench_lock", columns);
+		source.clear();
+		for (int i = 0; i < rows; i++)
+			source.put("key" + i, List.of("name" + i, i));
+		table = new LockedTable(source);
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		table.close();
+		TableBenchmark.delete(source.path());
+	}
+
+	@Benchmark
+	public List<Object> get(Cursor cursor) {
+		int i = cursor.next;
+		cursor.next = (i + 31) % rows;
+		List<Object> fields = table.get("key" + i);
+		if (fields == null) {
+			throw new IllegalStateException("Missing rows during concurrent gets");
+		}
+		return fields;
+	}
+}
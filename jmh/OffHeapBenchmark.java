@@ -0,0 +1,83 @@
+package apps;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.DataTable;
+import tables.HashTable;
+import tables.OffHeapHashTable;
+
+// GC cost of the on-heap HashTable against OffHeapHashTable holding many rows. Each mode
+// runs in its own fork with the same heap settings; -prof gc reports the collections and
+// the time spent in them. For the large runs, for example:
+//
+//   java -jar jmh/target/benchmarks.jar OffHeapBenchmark -prof gc -p rows=10000000 -jvmArgs -Xmx8g
+//
+// churn mixes reads and overwrites, which keep the young generation busy while the table
+// is live; fullGc times a full collection, which has to trace everything the table keeps
+// on the heap.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OffHeapBenchmark {
+	@Param({"heap", "offheap"})
+	public String mode;
+
+	@Param("1000000")
+	public int rows;
+
+	private DataTable table;
+	private final Random random = new Random(42);
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var columns = List.of("key", "name", "count", "score");
+		table = mode.equals("heap") ? new HashTable("bench", columns) : new OffHeapHashTable("bench", columns);
+		for (int i = 0; i < rows; i++)
+			table.put("row" + i, List.of("name" + (i % 1000), i, i / 3.0));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (table instanceof OffHeapHashTable offHeap) {
+			System.out.printf("%-40s %12d MB%n", "off-heap bytes", offHeap.offHeapBytes() >> 20);
+			offHeap.close();
+		}
+	}
+
+	// One in four operations overwrites a row
+	@Benchmark
+	public Object churn() {
+		int i = next++;
+		String key = "row" + random.nextInt(rows);
+		return i % 4 == 0 ? table.put(key, List.of("name" + i % 1000, i, i / 3.0)) : table.get(key);
+	}
+
+	@Benchmark
+	@BenchmarkMode(Mode.SingleShotTime)
+	@OutputTimeUnit(TimeUnit.MILLISECONDS)
+	@Warmup(iterations = 1)
+	@Measurement(iterations = 5)
+	public void fullGc() {
+		System.gc();
+	}
+}
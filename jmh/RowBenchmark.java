@@ -0,0 +1,96 @@
+package apps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.CompactRow;
+import model.Row;
+
+// Compares the Row record over an ArrayList, as callers usually pass fields, against
+// CompactRow: construction, whose gc.alloc.rate.norm under -prof gc is the heap a row
+// holds, and the fingerprint sum of row hashes
+//
+//   java -jar jmh/target/benchmarks.jar RowBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class RowBenchmark {
+	private static final int ROWS = 200_000;
+
+	// Field values are shared so only the row containers are measured
+	private final List<Object> values = List.of("name", 42, 2.5, true);
+	private final String[] keys = new String[ROWS];
+	private final Row[] records = new Row[ROWS];
+	private final CompactRow[] compacts = new CompactRow[ROWS];
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		for (int i = 0; i < ROWS; i++) {
+			keys[i] = "key" + i;
+			records[i] = new Row(keys[i], new ArrayList<>(values));
+			compacts[i] = new CompactRow(keys[i], new ArrayList<>(values));
+		}
+	}
+
+	@Benchmark
+	public Row rowConstruct() {
+		return new Row(keys[next()], new ArrayList<>(values));
+	}
+
+	@Benchmark
+	public CompactRow compactRowConstruct() {
+		return new CompactRow(keys[next()], new ArrayList<>(values));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int rowFingerprint() {
+		int fingerprint = 0;
+		for (Row row : records)
+			fingerprint += row.hashCode();
+		return fingerprint;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int compactRowFingerprint() {
+		int fingerprint = 0;
+		for (CompactRow row : compacts)
+			fingerprint += row.rowHash();
+		return fingerprint;
+	}
+
+	// What the tables' iterators hand out
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public int compactRowToRowHashCode() {
+		int fingerprint = 0;
+		for (CompactRow row : compacts)
+			fingerprint += row.toRow().hashCode();
+		return fingerprint;
+	}
+
+	private int next() {
+		int i = next;
+		next = i + 1 == ROWS ? 0 : i + 1;
+		return i;
+	}
+}
@@ -0,0 +1,91 @@
+package apps;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.FileTable;
+import tables.BinaryTable;
+import tables.CSVTable;
+import tables.JSONTable;
+
+// Measures the schema calls every put and filter makes on the file tables: columns(),
+// degree() and the column lookup, plus a put hit whose guard calls degree()
+//
+//   java -jar jmh/target/benchmarks.jar SchemaBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SchemaBenchmark {
+	private static final int ROWS = 1000;
+
+	@Param({"CSVTable", "JSONTable", "BinaryTable"})
+	public String kind;
+
+	private FileTable table;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		var columns = List.of("key", "name", "brand", "count");
+		table = switch (kind) {
+			case "CSVTable" -> new CSVTable("bench_schema", columns);
+			case "JSONTable" -> new JSONTable("bench_schema", columns);
+			case "BinaryTable" -> new BinaryTable("bench_schema", columns);
+			default -> throw new IllegalArgumentException("Unknown table: " + kind);
+		};
+		table.clear();
+		for (int i = 0; i < ROWS; i++)
+			table.put("key" + i, List.of("name" + i, "brand" + i % 10, i));
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		table.close();
+		TableBenchmark.delete(table.path());
+	}
+
+	@Benchmark
+	public List<String> columns() {
+		return table.columns();
+	}
+
+	@Benchmark
+	public int degree() {
+		return table.degree();
+	}
+
+	@Benchmark
+	public int columnsIndexOf() {
+		return table.columns().indexOf("count");
+	}
+
+	@Benchmark
+	public int columnIndex() {
+		return table.columnIndex("count");
+	}
+
+	// File rewrites dominate, so the first ten keys are cycled through
+	@Benchmark
+	public List<Object> putHit() {
+		int i = next;
+		next = (i + 1) % 10;
+		return table.put("key" + i, List.of("renamed" + i, "brand" + i % 10, i));
+	}
+}
@@ -0,0 +1,101 @@
+package apps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import model.Conversion;
+import model.Table;
+import tables.CSVTable;
+import tables.HashTable;
+import tables.JSONTable;
+
+// Startup cost of getting a loaded HashTable back: restoring its snapshot against
+// rebuilding it from the same rows saved as a CSVTable or JSONTable. Each load is timed
+// once per iteration; the setup checks that every source reproduces the table.
+//
+//   java -jar jmh/target/benchmarks.jar SnapshotBenchmark [-p rows=200000]
+@State(Scope.Thread)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(1)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class SnapshotBenchmark {
+	@Param({"snapshot", "CSVTable", "JSONTable"})
+	public String source;
+
+	@Param("200000")
+	public int rows;
+
+	private HashTable table;
+	private Path snapshot;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		table = new HashTable("bench_snapshot", List.of("key", "name", "count", "price", "active"));
+		for (int i = 0; i < rows; i++)
+			table.put("key" + i, List.of("name" + i % 100, i, i / 4.0, i % 2 == 0));
+
+		switch (source) {
+			case "snapshot" -> {
+				snapshot = Files.createTempFile("bench_snapshot", ".snapshot");
+				table.save(snapshot);
+			}
+			case "CSVTable" -> Conversion.from(table).into(new CSVTable("bench_snapshot", table.columns()));
+			case "JSONTable" -> Conversion.from(table).into(new JSONTable("bench_snapshot", table.columns()));
+			default -> throw new IllegalArgumentException("Unknown source: " + source);
+		}
+
+		Table loaded = load();
+		if (loaded.size() != table.size() || !loaded.equals(table)) {
+			throw new IllegalStateException(source + " did not reproduce the table");
+		}
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		try {
+			if (snapshot != null) {
+				Files.delete(snapshot);
+			} else {
+				TableBenchmark.delete(source.equals("CSVTable")
+					? new CSVTable("bench_snapshot").path() : new JSONTable("bench_snapshot").path());
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Benchmark
+	public Table load() {
+		return switch (source) {
+			case "snapshot" -> HashTable.restore(snapshot);
+			case "CSVTable" -> rebuild(new CSVTable("bench_snapshot"));
+			default -> rebuild(new JSONTable("bench_snapshot"));
+		};
+	}
+
+	private static HashTable rebuild(Table source) {
+		HashTable table = new HashTable(source.name(), source.columns());
+		table.putAll(source);
+		return table;
+	}
+}
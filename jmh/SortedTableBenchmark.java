@@ -0,0 +1,92 @@
+package apps;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.DataTable;
+import tables.HashTable;
+import tables.SortedTable;
+
+// Compares point get/put of SortedTable against HashTable to decide whether ordering is worth it.
+// Every benchmark covers all ROWS keys per call and reports the cost of one row.
+//
+//   java -jar jmh/target/benchmarks.jar SortedTableBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SortedTableBenchmark {
+	private static final int ROWS = 1000;
+
+	@Param({"HashTable", "SortedTable"})
+	public String kind;
+
+	private final List<String> keys = new ArrayList<>();
+	private final List<String> misses = new ArrayList<>();
+	private final List<Object> fields = List.of("value", 1);
+	private DataTable loaded;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		for (int i = 0; i < ROWS; i++) {
+			keys.add("key" + (i * 7919 % 100003)); // scattered, not insertion-ordered
+			misses.add(keys.get(i) + "!");
+		}
+		loaded = create();
+		for (String key : keys)
+			loaded.put(key, fields);
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public DataTable putFresh() {
+		DataTable table = create();
+		for (String key : keys)
+			table.put(key, fields);
+		return table;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void getHit(Blackhole blackhole) {
+		for (String key : keys)
+			blackhole.consume(loaded.get(key));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void getMiss(Blackhole blackhole) {
+		for (String key : misses)
+			blackhole.consume(loaded.get(key));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void iterate(Blackhole blackhole) {
+		for (var row : loaded)
+			blackhole.consume(row.key());
+	}
+
+	private DataTable create() {
+		var columns = List.of("key", "name", "count");
+		return kind.equals("HashTable") ? new HashTable("bench", columns) : new SortedTable("bench", columns);
+	}
+}
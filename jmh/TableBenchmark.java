@@ -0,0 +1,270 @@
+package apps;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.ColumnType;
+import model.FileTable;
+import model.Table;
+import tables.BinaryTable;
+import tables.CSVTable;
+import tables.ColumnarTable;
+import tables.HashTable;
+import tables.JSONTable;
+import tables.OffHeapHashTable;
+import tables.SortedTable;
+import tables.SymbolTable;
+
+// JMH benchmarks covering every Table implementation, for each combination of the
+// parameters below. Build with mvn package and run, for allocation per op and JSON results:
+//
+//   java -jar jmh/target/benchmarks.jar TableBenchmark -prof gc -rf json -rff results.json
+//       [-p table=HashTable,CSVTable] [-p rows=100,1000] [-p keyLength=8]
+//       [-p fields=mixed|string|int|double] [-p hitRatio=0.5] [-p readRatio=0.9]
+//
+// get, put, remove and mixed do one operation per call, cycling through the keys; put
+// overwrites and remove puts the row back, so the table keeps its size. iterate, filter,
+// hashCode and equals cover the whole table per call.
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TableBenchmark {
+	@Param({"HashTable", "SymbolTable", "SortedTable", "ColumnarTable", "OffHeapHashTable", "CSVTable",
+		"JSONTable", "BinaryTable"})
+	public String table;
+
+	@Param("100")
+	public int rows;
+
+	@Param("8")
+	public int keyLength;
+
+	@Param("mixed")
+	public String fields;
+
+	@Param("0.5")
+	public double hitRatio;
+
+	@Param("0.9")
+	public double readRatio;
+
+	private Table subject;
+	private Table reference;
+	private String[] keys;
+	private List<List<Object>> values;
+	private String[] lookups; // hits and misses in the requested ratio
+	private boolean[] reads;
+	private Object filterValue;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		Random random = new Random(42);
+		keys = keys(random);
+		values = new ArrayList<>();
+		for (int i = 0; i < keys.length; i++)
+			values.add(fields(fields, i));
+
+		subject = create();
+		subject.clear();
+		load(subject);
+		reference = new HashTable("reference", subject.columns());
+		load(reference);
+		filterValue = values.get(0).get(0);
+
+		lookups = new String[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			lookups[i] = random.nextDouble() < hitRatio ? keys[random.nextInt(keys.length)] : miss(i);
+		reads = new boolean[keys.length];
+		for (int i = 0; i < keys.length; i++)
+			reads[i] = random.nextDouble() < readRatio;
+	}
+
+	// Releases the off-heap memory and removes the files of the file tables
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		if (subject instanceof OffHeapHashTable offHeap) {
+			offHeap.close();
+		} else if (subject instanceof FileTable file) {
+			file.close();
+			delete(file.path());
+		}
+	}
+
+	@Benchmark
+	public Object get() {
+		return subject.get(lookups[next()]);
+	}
+
+	@Benchmark
+	public Object put() {
+		int i = next();
+		return subject.put(keys[i], values.get(i));
+	}
+
+	@Benchmark
+	public Object remove() {
+		int i = next();
+		Object removed = subject.remove(keys[i]);
+		subject.put(keys[i], values.get(i));
+		return removed;
+	}
+
+	@Benchmark
+	public Object mixed() {
+		int i = next();
+		return reads[i] ? subject.get(lookups[i]) : subject.put(keys[i], values.get(i));
+	}
+
+	@Benchmark
+	public void iterate(Blackhole blackhole) {
+		for (var row : subject)
+			blackhole.consume(row);
+	}
+
+	@Benchmark
+	public Object filter() {
+		return subject.filter("f1", filterValue);
+	}
+
+	@Benchmark
+	public int hashCodeOf() {
+		return subject.hashCode();
+	}
+
+	@Benchmark
+	public boolean equalsOf() {
+		return subject.equals(reference);
+	}
+
+	private int next() {
+		int i = next;
+		next = i + 1 == keys.length ? 0 : i + 1;
+		return i;
+	}
+
+	private Table create() {
+		List<String> columns = new ArrayList<>(List.of("key"));
+		for (int i = 1; i <= fields(fields, 0).size(); i++)
+			columns.add("f" + i);
+		String name = "bench_" + table;
+
+		return switch (table) {
+			case "HashTable" -> new HashTable(name, columns);
+			case "SymbolTable" -> new SymbolTable(name, columns);
+			case "SortedTable" -> new SortedTable(name, columns);
+			case "OffHeapHashTable" -> new OffHeapHashTable(name, columns);
+			case "ColumnarTable" -> {
+				List<ColumnType> types = new ArrayList<>(List.of(ColumnType.STRING));
+				for (Object field : fields(fields, 0))
+					types.add(Arrays.stream(ColumnType.values()).filter(t -> t.javaType().isInstance(field)).findFirst().orElseThrow());
+				yield new ColumnarTable(name, columns, types);
+			}
+			case "CSVTable" -> new CSVTable(name, columns);
+			case "JSONTable" -> new JSONTable(name, columns);
+			case "BinaryTable" -> new BinaryTable(name, columns);
+			default -> throw new IllegalArgumentException("Unknown table: " + table);
+		};
+	}
+
+	private void load(Table target) {
+		for (int i = 0; i < keys.length; i++)
+			target.put(keys[i], values.get(i));
+	}
+
+	// Unique random keys of the requested length; single letters for SymbolTable, which
+	// only has 52 slots
+	private String[] keys(Random random) {
+		if (table.equals("SymbolTable")) {
+			String[] symbols = new String[Math.min(rows, 52)];
+			for (int i = 0; i < symbols.length; i++)
+				symbols[i] = symbol(i);
+			return symbols;
+		}
+
+		String alphabet = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+		Set<String> seen = new HashSet<>();
+		List<String> keys = new ArrayList<>();
+		while (keys.size() < rows) {
+			StringBuilder key = new StringBuilder();
+			for (int i = 0; i < keyLength; i++)
+				key.append(alphabet.charAt(random.nextInt(alphabet.length())));
+			if (seen.add(key.toString()))
+				keys.add(key.toString());
+		}
+		return keys.toArray(String[]::new);
+	}
+
+	// A key that is not in the table; for SymbolTable a free letter, if any are left
+	private String miss(int i) {
+		if (table.equals("SymbolTable")) {
+			return symbol(keys.length + i % Math.max(1, 52 - keys.length));
+		}
+		return keys[i] + "~";
+	}
+
+	// The i-th of SymbolTable's 52 letter keys, wrapping around when every letter is in use
+	private static String symbol(int i) {
+		i %= 52;
+		return String.valueOf((char) (i < 26 ? 'A' + i : 'a' + i - 26));
+	}
+
+	// Field values cycle through ten variants so filters match about a tenth of the rows
+	private static List<Object> fields(String types, int i) {
+		int v = i % 10;
+		return switch (types) {
+			case "string" -> List.of("name" + v, "brand" + v, "type" + v);
+			case "int" -> List.of(v, v * 10, v * 100);
+			case "double" -> List.of(v / 2.0, v * 1.5, v * 0.25);
+			case "mixed" -> List.of("name" + v, v, v / 2.0, v % 2 == 0);
+			default -> throw new IllegalArgumentException("Unknown field types: " + types);
+		};
+	}
+
+	// The table's file or directory and the files kept next to it, like a CSV dictionary;
+	// the other file table benchmarks clean up with it too
+	static void delete(Path path) {
+		String name = path.getFileName().toString();
+		String stem = name.contains(".") ? name.substring(0, name.lastIndexOf('.')) : name;
+		try (Stream<Path> siblings = Files.list(path.getParent())) {
+			for (Path sibling : siblings.filter(p -> p.getFileName().toString().equals(stem)
+					|| p.getFileName().toString().startsWith(stem + ".")).toList()) {
+				try (Stream<Path> files = Files.walk(sibling)) {
+					for (Path file : files.sorted(Comparator.reverseOrder()).toList())
+						Files.delete(file);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+}
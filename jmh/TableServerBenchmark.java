@@ -0,0 +1,128 @@
+package apps;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import model.RemoteTable;
+import model.TableServer;
+import tables.HashTable;
+
+// Round trips to a TableServer on loopback TCP and on a Unix-domain socket: one request at
+// a time against pipelined requests, plus a full scan; the pipelined and scan benchmarks
+// report the cost of one request or row
+//
+//   java -jar jmh/target/benchmarks.jar TableServerBenchmark -prof gc
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class TableServerBenchmark {
+	private static final int ROWS = 10_000;
+	private static final int PIPELINED = 1000;
+
+	@Param({"tcp", "unix"})
+	public String transport;
+
+	private TableServer server;
+	private RemoteTable remote;
+	private Path socket;
+	private int next;
+
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		var table = new HashTable("bench_server", List.of("key", "name", "count"));
+		for (int i = 0; i < ROWS; i++)
+			table.put("key" + i, List.of("name" + i, i));
+
+		if (transport.equals("tcp")) {
+			server = new TableServer().host(table).start(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		} else {
+			socket = Files.createTempDirectory("bench_server").resolve("tables.sock");
+			server = new TableServer().host(table).start(UnixDomainSocketAddress.of(socket));
+		}
+		remote = RemoteTable.connect(server.address(), table.name());
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() throws IOException {
+		remote.close();
+		server.close();
+		if (socket != null) {
+			Files.deleteIfExists(socket);
+			Files.deleteIfExists(socket.getParent());
+		}
+	}
+
+	@Benchmark
+	public List<Object> get() {
+		return remote.get("key" + next());
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINED)
+	public void getPipelined(Blackhole blackhole) {
+		List<CompletableFuture<List<Object>>> results = new ArrayList<>(PIPELINED);
+		try (var pipeline = remote.pipeline()) {
+			for (int i = 0; i < PIPELINED; i++)
+				results.add(pipeline.get("key" + next()));
+		}
+		for (var result : results)
+			blackhole.consume(result.join());
+	}
+
+	@Benchmark
+	public List<Object> put() {
+		int i = next();
+		return remote.put("key" + i, List.of("name", i));
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(PIPELINED)
+	public void putPipelined() {
+		try (var pipeline = remote.pipeline()) {
+			for (int i = 0; i < PIPELINED; i++) {
+				int key = next();
+				pipeline.put("key" + key, List.of("name", key));
+			}
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(ROWS)
+	public void scan(Blackhole blackhole) {
+		for (var row : remote)
+			blackhole.consume(row.key());
+	}
+
+	private int next() {
+		int i = next;
+		next = i + 1 == ROWS ? 0 : i + 1;
+		return i;
+	}
+}